@@ -0,0 +1,67 @@
+package liam.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import liam.collections.Bag;
+
+/**
+ * Benchmarks for {@link Bag}. Every thread has its own bag, so running
+ * with more threads measures how well independent bags scale, including
+ * any shared state such as the random number generator.<br><br>
+ *
+ * The bag is kept at its size by putting back whatever is taken out.
+ *
+ * @author Liam
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BagBenchmark {
+
+	@Param({ "100", "10000", "1000000" })
+	int size;
+
+	private Bag<Integer> bag;
+
+	@Setup
+	public void setup() {
+		bag = new Bag<>();
+		for (int i = 0; i < size; i++)
+			bag.add(i);
+	}
+
+	@Benchmark
+	public Integer take() {
+		return bag.take();
+	}
+
+	@Benchmark
+	public Integer takeOut() {
+		Integer item = bag.takeOut();
+		bag.add(item);
+		return item;
+	}
+
+	@Benchmark
+	public boolean add() {
+		boolean added = bag.add(size);
+		bag.remove(size);
+		return added;
+	}
+
+}
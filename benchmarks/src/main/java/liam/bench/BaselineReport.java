@@ -0,0 +1,141 @@
+package liam.bench;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class compares benchmark results with a baseline, such as the
+ * results from the main branch, and reports which benchmarks got faster
+ * or slower.<br><br>
+ *
+ * A benchmark is only counted as changed if its score moved by more than
+ * the threshold percentage and the two scores' error margins don't
+ * overlap, so noise isn't reported as a change. A performance change
+ * should be accepted only if the report has no regressions.<br><br>
+ *
+ * It can be run on two results files:
+ *
+ * <pre>
+ * java -cp benchmarks.jar liam.bench.BaselineReport baseline.csv results.csv [threshold]
+ * </pre>
+ *
+ * and exits with status 1 if anything regressed.
+ *
+ * @author Liam
+ */
+public final class BaselineReport {
+
+	/**
+	 * The default percentage a score has to move by to count as changed.
+	 */
+	public static final double DEFAULT_THRESHOLD = 5;
+
+	private final Map<String, BenchmarkResult> baseline = new LinkedHashMap<>();
+	private final double threshold;
+
+	private int faster;
+	private int slower;
+	private int unchanged;
+	private int added;
+
+	/**
+	 * This constructor will create a report against baseline results.
+	 *
+	 * @param baseline The baseline results.
+	 * @param threshold The percentage a score has to move by to count as
+	 * changed.
+	 */
+	BaselineReport(List<BenchmarkResult> baseline, double threshold) {
+		if (!(threshold >= 0))
+			throw new IllegalArgumentException("Threshold must not be negative: " + threshold);
+		for (BenchmarkResult r : baseline)
+			this.baseline.put(r.key(), r);
+		this.threshold = threshold;
+	}
+
+	/**
+	 * This method will compare a results file with a baseline file.
+	 *
+	 * @param args The baseline file, the results file and optionally the
+	 * threshold.
+	 * @throws IOException If a file can't be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: BaselineReport <baseline.csv> <results.csv> [threshold %]");
+			System.exit(2);
+		}
+
+		double threshold = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+		BaselineReport report = new BaselineReport(BenchmarkResult.read(Path.of(args[0])), threshold);
+		boolean regressed = report.print(BenchmarkResult.read(Path.of(args[1])), System.out);
+		System.exit(regressed ? 1 : 0);
+	}
+
+	/**
+	 * This method will print the comparison of results with the baseline.
+	 *
+	 * @param results The results to compare.
+	 * @param out The stream to print to.
+	 * @return Whether any benchmark regressed.
+	 */
+	boolean print(List<BenchmarkResult> results, PrintStream out) {
+		faster = slower = unchanged = added = 0;
+		Map<String, BenchmarkResult> missing = new LinkedHashMap<>(baseline);
+
+		out.printf("%-60s %5s %7s %-30s %14s %14s %8s%n", "Benchmark", "Mode", "Threads", "Params", "Baseline",
+				"Current", "Change");
+		for (BenchmarkResult current : results) {
+			BenchmarkResult base = missing.remove(current.key());
+			out.printf("%-60s %5s %7d %-30s %14s %14.3f %8s  %s%n", current.benchmark, current.mode,
+					current.threads, current.params, base == null ? "-" : String.format("%.3f", base.score),
+					current.score, base == null ? "-" : String.format("%+.1f%%", change(base, current)),
+					verdict(base, current));
+		}
+		for (BenchmarkResult base : missing.values())
+			out.printf("%-60s %5s %7d %-30s %14.3f %14s %8s  %s%n", base.benchmark, base.mode, base.threads,
+					base.params, base.score, "-", "-", "missing");
+
+		out.printf("%n%d faster, %d slower, %d unchanged, %d new, %d missing (threshold %.1f%%)%n", faster, slower,
+				unchanged, added, missing.size(), threshold);
+		return slower > 0;
+	}
+
+	private String verdict(BenchmarkResult base, BenchmarkResult current) {
+		if (base == null) {
+			added++;
+			return "new";
+		}
+		if (!base.unit.equals(current.unit)) {
+			unchanged++;
+			return "units differ (" + base.unit + ")";
+		}
+
+		double change = change(base, current);
+		if (Math.abs(change) <= threshold || overlaps(base, current)) {
+			unchanged++;
+			return "";
+		}
+		if (current.higherIsBetter() == change > 0) {
+			faster++;
+			return "faster";
+		}
+		slower++;
+		return "SLOWER";
+	}
+
+	private static double change(BenchmarkResult base, BenchmarkResult current) {
+		return (current.score - base.score) * 100 / base.score;
+	}
+
+	private static boolean overlaps(BenchmarkResult a, BenchmarkResult b) {
+		double errorA = Double.isNaN(a.error) ? 0 : a.error;
+		double errorB = Double.isNaN(b.error) ? 0 : b.error;
+		return a.score - errorA <= b.score + errorB && b.score - errorB <= a.score + errorA;
+	}
+
+}
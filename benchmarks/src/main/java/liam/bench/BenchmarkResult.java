@@ -0,0 +1,140 @@
+package liam.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+/**
+ * This class is the score of one benchmark with one set of parameters and
+ * thread count, as written to and read from the results files compared
+ * by {@link BaselineReport}.<br><br>
+ *
+ * The files are CSV, one result per line:
+ *
+ * <pre>
+ * Benchmark,Mode,Threads,Params,Score,Error,Unit
+ * liam.bench.BagBenchmark.take,avgt,1,size=100,12.5,0.3,ns/op
+ * </pre>
+ *
+ * Parameters are separated by semicolons, so no field needs quoting.
+ *
+ * @author Liam
+ */
+final class BenchmarkResult {
+
+	static final String HEADER = "Benchmark,Mode,Threads,Params,Score,Error,Unit";
+
+	final String benchmark;
+	final String mode;
+	final int threads;
+	final String params;
+	final double score;
+	final double error;
+	final String unit;
+
+	BenchmarkResult(String benchmark, String mode, int threads, String params, double score, double error,
+			String unit) {
+		this.benchmark = benchmark;
+		this.mode = mode;
+		this.threads = threads;
+		this.params = params;
+		this.score = score;
+		this.error = error;
+		this.unit = unit;
+	}
+
+	/**
+	 * This method will create a result from a JMH run.
+	 *
+	 * @param run The run.
+	 * @return The result.
+	 */
+	static BenchmarkResult of(RunResult run) {
+		BenchmarkParams params = run.getParams();
+		StringBuilder sb = new StringBuilder();
+		for (String key : params.getParamsKeys()) {
+			if (sb.length() > 0)
+				sb.append(';');
+			sb.append(key).append('=').append(params.getParam(key));
+		}
+
+		Result<?> primary = run.getPrimaryResult();
+		return new BenchmarkResult(params.getBenchmark(), params.getMode().shortLabel(), params.getThreads(),
+				sb.toString(), primary.getScore(), primary.getScoreError(), primary.getScoreUnit());
+	}
+
+	/**
+	 * This method will return what identifies the result between runs:
+	 * everything except the score.
+	 *
+	 * @return The key.
+	 */
+	String key() {
+		return benchmark + ' ' + mode + ' ' + threads + ' ' + params;
+	}
+
+	/**
+	 * This method will return whether a higher score is better, which is
+	 * only the case for throughput.
+	 *
+	 * @return Whether higher is better.
+	 */
+	boolean higherIsBetter() {
+		return mode.equals("thrpt");
+	}
+
+	/**
+	 * This method will write results to a file.
+	 *
+	 * @param results The results.
+	 * @param path The file to write.
+	 * @throws IOException If the file can't be written.
+	 */
+	static void write(List<BenchmarkResult> results, Path path) throws IOException {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+			out.println(HEADER);
+			for (BenchmarkResult r : results)
+				out.println(String.join(",", r.benchmark, r.mode, Integer.toString(r.threads), r.params,
+						Double.toString(r.score), Double.toString(r.error), r.unit));
+		}
+	}
+
+	/**
+	 * This method will read results from a file.
+	 *
+	 * @param path The file to read.
+	 * @return The results.
+	 * @throws IOException If the file can't be read or isn't a results
+	 * file.
+	 */
+	static List<BenchmarkResult> read(Path path) throws IOException {
+		List<String> lines = Files.readAllLines(path);
+		if (lines.isEmpty() || !lines.get(0).equals(HEADER))
+			throw new IOException("Not a results file: " + path);
+
+		List<BenchmarkResult> results = new ArrayList<>();
+		for (int i = 1; i < lines.size(); i++) {
+			String line = lines.get(i);
+			if (line.isBlank())
+				continue;
+			String[] fields = line.split(",", -1);
+			if (fields.length != 7)
+				throw new IOException(path + ":" + (i + 1) + ": expected 7 fields: " + line);
+			try {
+				results.add(new BenchmarkResult(fields[0], fields[1], Integer.parseInt(fields[2]), fields[3],
+						Double.parseDouble(fields[4]), Double.parseDouble(fields[5]), fields[6]));
+			} catch (NumberFormatException ex) {
+				throw new IOException(path + ":" + (i + 1) + ": " + ex.getMessage(), ex);
+			}
+		}
+		return results;
+	}
+
+}
@@ -0,0 +1,125 @@
+package liam.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs the benchmarks once for every thread count asked for,
+ * saves the results, and compares them with a baseline. It is the main
+ * class of benchmarks.jar:
+ *
+ * <pre>
+ * java -jar benchmarks.jar [--threads 1,2,4] [--out results.csv]
+ *         [--baseline baseline.csv] [--threshold 5] [JMH options] [benchmarks]
+ * </pre>
+ *
+ * Any other options are passed to JMH, so for example
+ * <code>-f 1 -wi 3 Bag</code> runs the Bag benchmarks with fewer forks
+ * and warmups. Results are saved to <code>results.csv</code> unless
+ * <code>--out</code> is given; a saved file can be used as the baseline
+ * of a later run. With a baseline, the exit status is 1 if any benchmark
+ * regressed.
+ *
+ * @author Liam
+ */
+public final class BenchmarkRunner {
+
+	/**
+	 * Class shouldn't be instantiated.
+	 */
+	private BenchmarkRunner() {
+	}
+
+	/**
+	 * This method will run the benchmarks.
+	 *
+	 * @param args The options.
+	 * @throws IOException If a results file can't be read or written.
+	 * @throws RunnerException If JMH fails.
+	 */
+	public static void main(String[] args) throws IOException, RunnerException {
+		int[] threads = { 1 };
+		Path out = Path.of("results.csv");
+		Path baseline = null;
+		double threshold = BaselineReport.DEFAULT_THRESHOLD;
+		List<String> jmhArgs = new ArrayList<>();
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--threads":
+				threads = parseThreads(value(args, ++i));
+				break;
+			case "--out":
+				out = Path.of(value(args, ++i));
+				break;
+			case "--baseline":
+				baseline = Path.of(value(args, ++i));
+				break;
+			case "--threshold":
+				threshold = Double.parseDouble(value(args, ++i));
+				break;
+			default:
+				jmhArgs.add(args[i]);
+			}
+		}
+
+		// Read the baseline first, so a bad path fails before the long run
+		BaselineReport report = baseline == null ? null
+				: new BaselineReport(BenchmarkResult.read(baseline), threshold);
+
+		CommandLineOptions options;
+		try {
+			options = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+		} catch (CommandLineOptionException ex) {
+			System.err.println("Error: " + ex.getMessage());
+			System.exit(2);
+			return;
+		}
+		if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+				|| options.shouldListProfilers() || options.shouldListResultFormats()) {
+			Main.main(jmhArgs.toArray(new String[0]));
+			return;
+		}
+
+		List<BenchmarkResult> results = new ArrayList<>();
+		for (int t : threads) {
+			for (RunResult run : new Runner(new OptionsBuilder().parent(options).threads(t).build()).run())
+				results.add(BenchmarkResult.of(run));
+		}
+		BenchmarkResult.write(results, out);
+		System.out.println("Results saved to " + out.toAbsolutePath());
+
+		if (report != null) {
+			System.out.println();
+			System.exit(report.print(results, System.out) ? 1 : 0);
+		}
+	}
+
+	private static String value(String[] args, int i) {
+		if (i >= args.length)
+			throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+		return args[i];
+	}
+
+	private static int[] parseThreads(String list) {
+		String[] parts = list.split(",");
+		int[] threads = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			threads[i] = Integer.parseInt(parts[i].trim());
+			if (threads[i] < 1)
+				throw new IllegalArgumentException("Thread count must be at least 1: " + threads[i]);
+		}
+		return threads;
+	}
+
+}
@@ -0,0 +1,65 @@
+package liam.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import liam.collections.CountedBag;
+
+/**
+ * Benchmarks for {@link CountedBag}, with a million copies of each
+ * distinct item. Every thread has its own bag, which is kept at its size
+ * by putting back whatever is taken out.
+ *
+ * @author Liam
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CountedBagBenchmark {
+
+	private static final long COPIES = 1_000_000;
+
+	@Param({ "100", "10000" })
+	int distinct;
+
+	private CountedBag<Integer> bag;
+
+	@Setup
+	public void setup() {
+		bag = new CountedBag<>();
+		for (int i = 0; i < distinct; i++)
+			bag.add(i, COPIES);
+	}
+
+	@Benchmark
+	public Integer take() {
+		return bag.take();
+	}
+
+	@Benchmark
+	public Integer takeOut() {
+		Integer item = bag.takeOut();
+		bag.add(item);
+		return item;
+	}
+
+	@Benchmark
+	public boolean contains() {
+		return bag.contains(distinct / 2);
+	}
+
+}
@@ -0,0 +1,54 @@
+package liam.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import liam.collections.CycleList;
+
+/**
+ * Benchmarks for {@link CycleList}. Every thread has its own list.
+ *
+ * @author Liam
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CycleListBenchmark {
+
+	@Param({ "100", "10000", "1000000" })
+	int size;
+
+	private CycleList<Integer> list;
+
+	@Setup
+	public void setup() {
+		list = new CycleList<>();
+		for (int i = 0; i < size; i++)
+			list.add(i);
+	}
+
+	@Benchmark
+	public Integer next() {
+		return list.next();
+	}
+
+	@Benchmark
+	public Integer peekNext() {
+		return list.peekNext();
+	}
+
+}
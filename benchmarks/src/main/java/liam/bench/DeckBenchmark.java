@@ -0,0 +1,67 @@
+package liam.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import liam.collections.Deck;
+
+/**
+ * Benchmarks for {@link Deck}. Every thread has its own deck, which is
+ * kept at its size by putting back whatever is taken.
+ *
+ * @author Liam
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DeckBenchmark {
+
+	@Param({ "100", "10000", "1000000" })
+	int size;
+
+	private Deck<Integer> deck;
+
+	@Setup
+	public void setup() {
+		List<Integer> items = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			items.add(i);
+		deck = new Deck<>(items);
+	}
+
+	@Benchmark
+	public Integer placeTopTakeTop() {
+		deck.placeTop(size);
+		return deck.takeTop();
+	}
+
+	@Benchmark
+	public Integer takeTopPlaceBottom() {
+		Integer card = deck.takeTop();
+		deck.placeBottom(card);
+		return card;
+	}
+
+	@Benchmark
+	public Deck<Integer> shuffle() {
+		deck.shuffle();
+		return deck;
+	}
+
+}
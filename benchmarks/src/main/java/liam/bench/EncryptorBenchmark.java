@@ -0,0 +1,141 @@
+package liam.bench;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import liam.util.AesGcmEncryptor;
+import liam.util.Encryptor;
+import liam.util.KeyProvider;
+
+/**
+ * Benchmarks for {@link Encryptor} and {@link AesGcmEncryptor}: Strings
+ * in both formats, and byte arrays encrypted in parallel on pools of
+ * different sizes, compared with AES-GCM on the same data. The data is
+ * shared and only read, so running with more threads measures how the
+ * encryptors scale.
+ *
+ * @author Liam
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EncryptorBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Text {
+
+		@Param({ "16", "1024", "65536" })
+		int length;
+
+		@Param
+		Encryptor.Format format;
+
+		String plain;
+		String encrypted;
+
+		@Setup
+		public void setup() {
+			plain = randomText(length);
+			encrypted = Encryptor.encrypt(plain, format);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Bytes {
+
+		@Param({ "65536", "4194304" })
+		int length;
+
+		byte[] plain;
+		byte[] encrypted;
+		AesGcmEncryptor aesGcm;
+		byte[] aesEncrypted;
+
+		@Setup
+		public void setup() {
+			plain = randomText(length).getBytes();
+			encrypted = Encryptor.encryptParallel(plain);
+			aesGcm = new AesGcmEncryptor(KeyProvider.of(KeyProvider.generateKey()));
+			aesEncrypted = aesGcm.encrypt(plain);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Pool {
+
+		@Param({ "1", "2", "4", "8" })
+		int parallelism;
+
+		ForkJoinPool pool;
+
+		@Setup
+		public void setup() {
+			pool = new ForkJoinPool(parallelism);
+		}
+
+		@TearDown
+		public void tearDown() {
+			pool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public String encrypt(Text text) {
+		return Encryptor.encrypt(text.plain, text.format);
+	}
+
+	@Benchmark
+	public String decrypt(Text text) {
+		return Encryptor.decrypt(text.encrypted);
+	}
+
+	@Benchmark
+	public byte[] encryptParallel(Bytes bytes, Pool pool) {
+		return Encryptor.encryptParallel(bytes.plain, Encryptor.Format.MODULAR, pool.pool);
+	}
+
+	@Benchmark
+	public byte[] decryptParallel(Bytes bytes, Pool pool) {
+		return Encryptor.decryptParallel(bytes.encrypted, pool.pool);
+	}
+
+	@Benchmark
+	public byte[] aesGcmEncrypt(Bytes bytes) {
+		return bytes.aesGcm.encrypt(bytes.plain);
+	}
+
+	@Benchmark
+	public byte[] aesGcmDecrypt(Bytes bytes) throws IOException {
+		return bytes.aesGcm.decrypt(bytes.aesEncrypted);
+	}
+
+	/**
+	 * Returns printable text, which is what the String methods are used
+	 * for. It is the same on every run.
+	 */
+	static String randomText(int length) {
+		SplittableRandom random = new SplittableRandom(length);
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = (char) random.nextInt(' ', '~' + 1);
+		return new String(chars);
+	}
+
+}
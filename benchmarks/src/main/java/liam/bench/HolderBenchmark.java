@@ -0,0 +1,89 @@
+package liam.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import liam.util.AtomicValueHolder;
+import liam.util.StripedLongHolder;
+import liam.util.ValueHolder;
+
+/**
+ * Benchmarks for the holders shared between threads, next to the JDK
+ * classes and locking they replace. Every thread uses the same holders,
+ * so these are the benchmarks to run with several thread counts.
+ *
+ * @author Liam
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HolderBenchmark {
+
+	private final AtomicValueHolder<Integer> atomicHolder = new AtomicValueHolder<>(0);
+	private final AtomicReference<Integer> atomicReference = new AtomicReference<>(0);
+	private final ValueHolder<Integer> lockedHolder = new ValueHolder<>(0);
+
+	private final StripedLongHolder stripedHolder = new StripedLongHolder();
+	private final LongAdder longAdder = new LongAdder();
+	private final AtomicLong atomicLong = new AtomicLong();
+
+	@Benchmark
+	public Integer atomicHolderGet() {
+		return atomicHolder.get();
+	}
+
+	@Benchmark
+	public Integer atomicHolderGetAcquire() {
+		return atomicHolder.getAcquire();
+	}
+
+	@Benchmark
+	public Integer atomicHolderUpdate() {
+		return atomicHolder.updateAndGet(i -> i + 1);
+	}
+
+	@Benchmark
+	public Integer atomicReferenceUpdate() {
+		return atomicReference.updateAndGet(i -> i + 1);
+	}
+
+	@Benchmark
+	public Integer lockedHolderUpdate() {
+		synchronized (lockedHolder) {
+			Integer value = lockedHolder.get() + 1;
+			lockedHolder.set(value);
+			return value;
+		}
+	}
+
+	@Benchmark
+	public void stripedHolderIncrement() {
+		stripedHolder.increment();
+	}
+
+	@Benchmark
+	public void longAdderIncrement() {
+		longAdder.increment();
+	}
+
+	@Benchmark
+	public long atomicLongIncrement() {
+		return atomicLong.incrementAndGet();
+	}
+
+}
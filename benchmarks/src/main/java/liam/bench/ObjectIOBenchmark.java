@@ -0,0 +1,97 @@
+package liam.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import liam.io.Codec;
+import liam.io.ObjectIO;
+import liam.io.StreamCipher;
+import liam.util.AesGcmEncryptor;
+import liam.util.KeyProvider;
+
+/**
+ * Benchmarks for writing an object with {@link ObjectIO} and reading it
+ * back, plain, compressed and encrypted. Every thread has its own file,
+ * which stays in the page cache, so the benchmarks mostly measure
+ * serialisation, compression and encryption rather than the disk.
+ *
+ * @author Liam
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ObjectIOBenchmark {
+
+	@Param({ "1000", "100000" })
+	int size;
+
+	@Param({ "NONE", "DEFLATE", "LZ4" })
+	String codec;
+
+	private ArrayList<Integer> list;
+	private Codec compression;
+	private StreamCipher encryptor;
+	private StreamCipher aesGcm;
+	private Path directory;
+	private Path file;
+
+	@Setup
+	public void setup() throws IOException {
+		list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			list.add(i % 1000);
+		compression = codec.equals("NONE") ? null : Codec.valueOf(codec);
+		encryptor = StreamCipher.encryptor();
+		aesGcm = StreamCipher.aesGcm(new AesGcmEncryptor(KeyProvider.of(KeyProvider.generateKey())));
+
+		directory = Files.createTempDirectory("liam-bench");
+		file = directory.resolve("object.bin");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public Object roundTrip() {
+		if (compression == null)
+			ObjectIO.write(list, file);
+		else
+			ObjectIO.write(list, file, compression);
+		return ObjectIO.read(file);
+	}
+
+	@Benchmark
+	public Object encryptorRoundTrip() {
+		ObjectIO.write(list, file, compression, encryptor);
+		return ObjectIO.read(file, encryptor);
+	}
+
+	@Benchmark
+	public Object aesGcmRoundTrip() {
+		ObjectIO.write(list, file, compression, aesGcm);
+		return ObjectIO.read(file, aesGcm);
+	}
+
+}
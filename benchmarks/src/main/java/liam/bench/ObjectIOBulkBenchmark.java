@@ -0,0 +1,89 @@
+package liam.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import liam.io.BulkResult;
+import liam.io.ObjectIO;
+
+/**
+ * Benchmarks for {@link ObjectIO#writeAll(Map, ExecutorService, int)} and
+ * {@link ObjectIO#readAll(java.util.Collection, ExecutorService, int)},
+ * with a number of threads writing and reading the files.
+ *
+ * @author Liam
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ObjectIOBulkBenchmark {
+
+	@Param({ "64" })
+	int files;
+
+	@Param({ "1000", "100000" })
+	int size;
+
+	@Param({ "1", "2", "4", "8" })
+	int threads;
+
+	private Path directory;
+	private Map<Path, Object> objects;
+	private ExecutorService executor;
+
+	@Setup
+	public void setup() throws IOException {
+		ArrayList<Integer> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			list.add(i % 1000);
+
+		directory = Files.createTempDirectory("liam-bench");
+		objects = new LinkedHashMap<>();
+		for (int i = 0; i < files; i++)
+			objects.put(directory.resolve("object" + i + ".bin"), list);
+		executor = Executors.newFixedThreadPool(threads);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		executor.shutdown();
+		for (Path path : objects.keySet())
+			Files.deleteIfExists(path);
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public BulkResult writeAll() {
+		return ObjectIO.writeAll(objects, executor, 2 * threads);
+	}
+
+	@Benchmark
+	public BulkResult roundTrip() {
+		ObjectIO.writeAll(objects, executor, 2 * threads);
+		return ObjectIO.readAll(objects.keySet(), executor, 2 * threads);
+	}
+
+}
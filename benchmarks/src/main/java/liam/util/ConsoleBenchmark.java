@@ -0,0 +1,89 @@
+package liam.util;
+
+import java.io.ByteArrayInputStream;
+import java.text.DecimalFormat;
+import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link ConsoleProgram}'s formatting and parsing. These
+ * are in the library's package so the fast mode reader can be run on an
+ * in-memory stream rather than <code>System.in</code>; each is run next
+ * to the way it was done before, which is the baseline to beat.
+ *
+ * @author Liam
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConsoleBenchmark {
+
+	@State(Scope.Thread)
+	public static class Numbers {
+
+		@Param({ "0", "2", "6" })
+		int dp;
+
+		double value = Math.PI * 1000;
+	}
+
+	@State(Scope.Thread)
+	public static class Input {
+
+		@Param({ "1000", "100000" })
+		int count;
+
+		byte[] bytes;
+
+		@Setup
+		public void setup() {
+			SplittableRandom random = new SplittableRandom(count);
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < count; i++)
+				sb.append(random.nextInt()).append(i % 10 == 9 ? '\n' : ' ');
+			bytes = sb.toString().getBytes();
+		}
+	}
+
+	@Benchmark
+	public String rounded(Numbers numbers) {
+		return ConsoleProgram.rounded(numbers.value, numbers.dp);
+	}
+
+	@Benchmark
+	public String roundedNewFormat(Numbers numbers) {
+		String pattern = numbers.dp == 0 ? "0" : "0." + "0".repeat(numbers.dp);
+		return new DecimalFormat(pattern).format(numbers.value);
+	}
+
+	@Benchmark
+	public void readIntFast(Input input, Blackhole blackhole) {
+		ConsoleReader reader = new ConsoleReader(new ByteArrayInputStream(input.bytes), null);
+		for (int i = 0; i < input.count; i++)
+			blackhole.consume(reader.nextInt());
+	}
+
+	@Benchmark
+	public void readIntScanner(Input input, Blackhole blackhole) {
+		Scanner scan = new Scanner(new ByteArrayInputStream(input.bytes));
+		for (int i = 0; i < input.count; i++)
+			blackhole.consume(scan.nextInt());
+	}
+
+}
@@ -1,28 +1,63 @@
 package liam.collections;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.Set;
+
+import liam.util.Metrics;
+import liam.util.OperationMetrics;
 
 /**
  * This collection class is like a bag of items. This means
  * that values stored in this class will be fetched randomly 
- * (mirroring the nature of an actual bag).
+ * (mirroring the nature of an actual bag).<br><br>
+ * 
+ * A bag can keep a hash index of its items (see {@link #indexItems()}),
+ * which makes {@link #contains(Object)} take constant time.<br><br>
+ * 
+ * A bag stores every copy of its items. For few distinct items with
+ * many copies each, {@link CountedBag} uses far less memory.<br><br>
  * 
+ * Tracking changes (see {@link Tracked}) records the items added and
+ * removed, but not their order, which is shuffled whenever the bag is
+ * iterated or printed. A bag read back from its changes holds the same
+ * items, possibly in a different order.<br><br>
+ * 
+ * Taking out and adding collections are timed when {@link Metrics}
+ * are enabled.
  * 
  * @author Liam
  * 
  * @param <T> 
  * 			The type of items to be added.
  */
-public class Bag<T> implements Collection<T> {
+public class Bag<T> implements Collection<T>, Tracked<T>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final OperationMetrics TAKE_OUT = Metrics.operation("Bag.takeOut");
+	private static final OperationMetrics ADD_ALL = Metrics.operation("Bag.addAll");
 
 	/**
 	 * This list will hold all the items.
 	 */
 	private ArrayList<T> items;
 
+	/**
+	 * The changes made since the last save, or null if changes
+	 * aren't being tracked.
+	 */
+	private transient ChangeLog<T> changes;
+
+	/**
+	 * The number of copies of each item, or null if the items
+	 * aren't indexed.
+	 */
+	private transient MembershipIndex index;
+
 	/**
 	 * This constructor will create an empty bag.
 	 */
@@ -59,7 +94,15 @@ public class Bag<T> implements Collection<T> {
 	 * @return The item being taken out.
 	 */
 	public T takeOut() {
-		return items.remove(new Random().nextInt(items.size()));
+		OperationMetrics.Timer timer = TAKE_OUT.start();
+		T item = items.remove(new Random().nextInt(items.size()));
+		if (changes != null)
+			changes.removeItem(item);
+		if (index != null)
+			index.remove(item);
+		if (timer != null)
+			timer.stop(1, 0);
+		return item;
 	}
 	
 	/**
@@ -75,7 +118,7 @@ public class Bag<T> implements Collection<T> {
 	@Override
 	public Iterator<T> iterator() {
 		randomize();
-		return items.iterator();
+		return index != null ? index.track(items.iterator()) : items.iterator();
 	}
 	
 	/**
@@ -103,7 +146,7 @@ public class Bag<T> implements Collection<T> {
 
 	@Override
 	public boolean contains(Object object) {
-		return items.contains(object);
+		return index != null ? index.contains(object) : items.contains(object);
 	}
 
 	@Override
@@ -118,7 +161,12 @@ public class Bag<T> implements Collection<T> {
 
 	@Override
 	public boolean add(T item) {
-		items.add(new Random().nextInt(items.size() + 1), item);
+		int index = new Random().nextInt(items.size() + 1);
+		items.add(index, item);
+		if (changes != null)
+			changes.insert(index, item);
+		if (this.index != null)
+			this.index.add(item);
 		return true;
 	}
 
@@ -129,19 +177,29 @@ public class Bag<T> implements Collection<T> {
 	@Override
 	@Deprecated
 	public boolean remove(Object object) {
-		items.remove(object);
-		return true;
+		if (index != null && !index.contains(object))
+			return false;
+
+		boolean changed = items.remove(object);
+		if (changed && changes != null)
+			changes.removeItem(object);
+		if (changed && index != null)
+			index.remove(object);
+		return changed;
 	}
 
 	@Override
 	public boolean containsAll(Collection<?> items) {
-		return this.items.containsAll(items);
+		return index != null ? index.containsAll(items) : this.items.containsAll(items);
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends T> items) {
+		OperationMetrics.Timer timer = ADD_ALL.start();
 		for (T item : items)
 			add(item);
+		if (timer != null)
+			timer.stop(items.size(), 0);
 		return true;
 	}
 
@@ -152,7 +210,16 @@ public class Bag<T> implements Collection<T> {
 	@Override
 	@Deprecated
 	public boolean removeAll(Collection<?> items) {
-		return this.items.removeAll(items);
+		if (index != null && !index.mayContainAny(items))
+			return false;
+
+		Set<?> set = MembershipIndex.asSet(items);
+		boolean changed = this.items.removeAll(set);
+		if (changed && changes != null)
+			changes.removeAll(items);
+		if (changed && index != null)
+			index.removeEvery(set);
+		return changed;
 	}
 
 	/**
@@ -162,12 +229,82 @@ public class Bag<T> implements Collection<T> {
 	@Override
 	@Deprecated
 	public boolean retainAll(Collection<?> items) {
-		return this.items.retainAll(items);
+		Set<?> set = MembershipIndex.asSet(items);
+		boolean changed = this.items.retainAll(set);
+		if (changed && changes != null)
+			changes.retainAll(items);
+		if (changed && index != null)
+			index.retainEvery(set);
+		return changed;
 	}
 
 	@Override
 	public void clear() {
 		items.clear();
+		if (changes != null)
+			changes.clear();
+		if (index != null)
+			index.clear();
+	}
+
+	@Override
+	public void trackChanges() {
+		changes = new ChangeLog<>();
+	}
+
+	@Override
+	public void untrackChanges() {
+		changes = null;
+	}
+
+	@Override
+	public ChangeLog<T> changes() {
+		return changes;
+	}
+
+	@Override
+	public void markSaved() {
+		if (changes != null)
+			changes.markSaved();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void replay(ChangeLog<? extends T> changes) {
+		((ChangeLog<T>) changes).applyTo(items, 0);
+		if (index != null)
+			index = new MembershipIndex(items);
+	}
+
+	/**
+	 * This method will start keeping a hash index of the items, so
+	 * {@link #contains(Object)} takes constant time and
+	 * {@link #containsAll(Collection)} takes time proportional to the
+	 * items checked. The index uses one map entry per distinct item and
+	 * is updated on every change; it isn't saved with the bag.<br><br>
+	 * 
+	 * Changes made directly to the list returned by
+	 * {@link #toArrayList()} aren't seen by the index. Calling this
+	 * method again rebuilds it.
+	 */
+	public void indexItems() {
+		index = new MembershipIndex(items);
+	}
+
+	/**
+	 * This method will stop keeping the index of the items.
+	 */
+	public void unindexItems() {
+		index = null;
+	}
+
+	/**
+	 * This method will check whether the items are indexed.
+	 * 
+	 * @return Whether the items are indexed.
+	 */
+	public boolean isIndexed() {
+		return index != null;
 	}
 
 	@Override
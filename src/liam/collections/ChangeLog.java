@@ -0,0 +1,274 @@
+package liam.collections;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class records the changes made to a {@link Tracked} collection
+ * since it was last saved. Replaying the log on top of the saved copy
+ * gives back the current state of the collection, so only the log needs
+ * to be written when checkpointing a large collection.
+ *
+ * @author Liam
+ *
+ * @param <T>
+ * 			The type of items in the collection.
+ */
+public final class ChangeLog<T> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The kinds of changes that can be recorded.
+	 */
+	private enum Op {
+		INSERT, INSERT_ALL, REMOVE, REMOVE_ITEM, REMOVE_ALL, RETAIN_ALL, CLEAR, RESET, CURSOR
+	}
+
+	/**
+	 * A single recorded change.
+	 */
+	private static final class Entry implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Op op;
+		private int index;
+		private final Object value;
+
+		private Entry(Op op, int index, Object value) {
+			this.op = op;
+			this.index = index;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The changes in the order they were made.
+	 */
+	private final ArrayList<Entry> entries = new ArrayList<>();
+
+	/**
+	 * Whether the whole collection has been saved at least once since
+	 * tracking started. Until then there is nothing to replay on top of.
+	 */
+	private boolean saved;
+
+	/**
+	 * The file the collection was last saved to, and its length after the
+	 * save, or null if it hasn't been saved to a file. Changes are only
+	 * appended to that file, and only if nothing else has written to it.
+	 */
+	private transient String savedFile;
+	private transient long savedLength;
+
+	/**
+	 * Logs are only created by the collections they belong to.
+	 */
+	ChangeLog() {
+	}
+
+	/**
+	 * This method will return the number of changes in the log.
+	 *
+	 * @return The number of changes.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * This method will check if any changes have been recorded.
+	 *
+	 * @return Whether the log is empty.
+	 */
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * This method will check if the collection has been saved in full
+	 * since tracking started, i.e. whether this log can be written as
+	 * a delta instead of a full copy.
+	 *
+	 * @return Whether a full copy has been saved.
+	 */
+	public boolean isSaved() {
+		return saved;
+	}
+
+	/**
+	 * This method will record the file the collection was saved to and
+	 * the file's length afterwards. It is called by whatever saved the
+	 * collection, after {@link Tracked#markSaved()}.
+	 *
+	 * @param file The absolute path of the file.
+	 * @param length The length of the file after the save.
+	 */
+	public void markSavedTo(String file, long length) {
+		savedFile = file;
+		savedLength = length;
+	}
+
+	/**
+	 * This method will check if the collection was last saved to a file
+	 * which still has the length it had after the save, so the log can be
+	 * appended to it.
+	 *
+	 * @param file The absolute path of the file.
+	 * @param length The current length of the file.
+	 * @return Whether the log can be appended to the file.
+	 */
+	public boolean isSavedTo(String file, long length) {
+		return saved && file.equals(savedFile) && length == savedLength;
+	}
+
+	/**
+	 * This method will check if the log contains a change that replaces
+	 * the whole collection (for example a shuffle), in which case writing
+	 * the log costs as much as writing the collection.
+	 *
+	 * @return Whether the log contains a full reset.
+	 */
+	public boolean hasReset() {
+		for (Entry entry : entries)
+			if (entry.op == Op.RESET || entry.op == Op.CLEAR)
+				return true;
+		return false;
+	}
+
+	/**
+	 * This method will return a copy of the log which can be saved
+	 * while the collection keeps changing.
+	 *
+	 * @return A copy of the log.
+	 */
+	public ChangeLog<T> copy() {
+		ChangeLog<T> copy = new ChangeLog<>();
+		for (Entry entry : entries)
+			copy.entries.add(new Entry(entry.op, entry.index, entry.value));
+		copy.saved = saved;
+		copy.savedFile = savedFile;
+		copy.savedLength = savedLength;
+		return copy;
+	}
+
+	void insert(int index, T item) {
+		entries.add(new Entry(Op.INSERT, index, item));
+	}
+
+	void insertAll(int index, Collection<? extends T> items) {
+		entries.add(new Entry(Op.INSERT_ALL, index, new ArrayList<>(items)));
+	}
+
+	void remove(int index) {
+		entries.add(new Entry(Op.REMOVE, index, null));
+	}
+
+	void removeItem(Object item) {
+		entries.add(new Entry(Op.REMOVE_ITEM, 0, item));
+	}
+
+	void removeAll(Collection<?> items) {
+		entries.add(new Entry(Op.REMOVE_ALL, 0, new ArrayList<>(items)));
+	}
+
+	void retainAll(Collection<?> items) {
+		entries.add(new Entry(Op.RETAIN_ALL, 0, new ArrayList<>(items)));
+	}
+
+	/**
+	 * Everything logged before a clear is irrelevant apart from the
+	 * cursor position, so the rest is dropped.
+	 */
+	void clear() {
+		replaceAll(new Entry(Op.CLEAR, 0, null));
+	}
+
+	/**
+	 * Everything logged before a reset is irrelevant apart from the
+	 * cursor position, so the rest is dropped.
+	 */
+	void reset(Collection<? extends T> items) {
+		replaceAll(new Entry(Op.RESET, 0, new ArrayList<>(items)));
+	}
+
+	private void replaceAll(Entry entry) {
+		Entry cursor = null;
+		for (Entry e : entries)
+			if (e.op == Op.CURSOR)
+				cursor = e;
+
+		entries.clear();
+		entries.add(entry);
+		if (cursor != null)
+			entries.add(cursor);
+	}
+
+	/**
+	 * Only the latest cursor position matters, so consecutive cursor
+	 * moves are merged into one entry.
+	 */
+	void cursor(int index) {
+		if (!entries.isEmpty()) {
+			Entry last = entries.get(entries.size() - 1);
+			if (last.op == Op.CURSOR) {
+				last.index = index;
+				return;
+			}
+		}
+		entries.add(new Entry(Op.CURSOR, index, null));
+	}
+
+	void markSaved() {
+		entries.clear();
+		saved = true;
+	}
+
+	/**
+	 * This method will apply the changes to a list.
+	 *
+	 * @param list The list to change.
+	 * @param cursor The cursor position before the changes.
+	 * @return The cursor position after the changes.
+	 */
+	@SuppressWarnings("unchecked")
+	int applyTo(List<T> list, int cursor) {
+		for (Entry entry : entries) {
+			switch (entry.op) {
+			case INSERT:
+				list.add(entry.index, (T) entry.value);
+				break;
+			case INSERT_ALL:
+				list.addAll(entry.index, (List<T>) entry.value);
+				break;
+			case REMOVE:
+				list.remove(entry.index);
+				break;
+			case REMOVE_ITEM:
+				list.remove(entry.value);
+				break;
+			case REMOVE_ALL:
+				list.removeAll(MembershipIndex.asSet((List<?>) entry.value));
+				break;
+			case RETAIN_ALL:
+				list.retainAll(MembershipIndex.asSet((List<?>) entry.value));
+				break;
+			case CLEAR:
+				list.clear();
+				break;
+			case RESET:
+				list.clear();
+				list.addAll((List<T>) entry.value);
+				break;
+			case CURSOR:
+				cursor = entry.index;
+				break;
+			}
+		}
+		return cursor;
+	}
+
+}
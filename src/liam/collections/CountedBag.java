@@ -0,0 +1,503 @@
+package liam.collections;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import liam.util.RandomNumbers;
+
+/**
+ * This collection class is a {@link Bag} for items with many copies.
+ * Instead of storing every copy, it stores each distinct item once with
+ * the number of copies, so a bag of a few thousand distinct items can
+ * hold billions of copies in a few kilobytes.<br><br>
+ *
+ * Items are still taken at random with every copy equally likely, as
+ * if each copy were stored separately. The counts are kept in a Fenwick
+ * tree of running totals, so adding copies, taking and taking out all
+ * take time proportional to the log of the number of distinct items,
+ * and checking for an item takes constant time.<br><br>
+ *
+ * {@link #size()} counts every copy, but is capped at
+ * {@link Integer#MAX_VALUE}; {@link #count()} gives the full number.
+ * Iterating goes over every copy, so for large counts
+ * {@link #count(Object)} should be used instead.
+ *
+ * @author Liam
+ *
+ * @param <T>
+ * 			The type of items to be added.
+ */
+public class CountedBag<T> extends AbstractCollection<T> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The distinct items. Only the first distinct slots are used.
+	 */
+	private transient Object[] items;
+
+	/**
+	 * The number of copies of the item in each slot.
+	 */
+	private transient long[] counts;
+
+	/**
+	 * The Fenwick tree of the counts: element i (from 1) holds the total
+	 * of the counts in the slots from i - (i & -i) up to i - 1.
+	 */
+	private transient long[] tree;
+
+	/**
+	 * The slot of each distinct item.
+	 */
+	private transient HashMap<Object, Integer> slots;
+
+	private transient int distinct;
+	private transient long total;
+
+	/**
+	 * This constructor will create an empty bag.
+	 */
+	public CountedBag() {
+		init(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * This constructor will create a bag with a copy of
+	 * each item in a collection.
+	 *
+	 * @param items
+	 * 			The items to put in the bag.
+	 */
+	public CountedBag(Collection<? extends T> items) {
+		this();
+		addAll(items);
+	}
+
+	/**
+	 * This method will take an item out of the bag
+	 * with replacement.
+	 *
+	 * @return The item being taken.
+	 * @throws NoSuchElementException If the bag is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public T take() {
+		return (T) items[randomSlot()];
+	}
+
+	/**
+	 * This method will take an item out of the bag
+	 * without replacement.
+	 *
+	 * @return The item being taken out.
+	 * @throws NoSuchElementException If the bag is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public T takeOut() {
+		int slot = randomSlot();
+		T item = (T) items[slot];
+		removeCopies(slot, 1);
+		return item;
+	}
+
+	/**
+	 * This method will put a copy of an item in the bag.
+	 *
+	 * @param item The item to add.
+	 * @return true
+	 */
+	@Override
+	public boolean add(T item) {
+		add(item, 1);
+		return true;
+	}
+
+	/**
+	 * This method will put a number of copies of an
+	 * item in the bag.
+	 *
+	 * @param item The item to add.
+	 * @param copies The number of copies.
+	 * @throws IllegalArgumentException If copies is negative.
+	 * @throws ArithmeticException If the bag would hold more
+	 * than {@link Long#MAX_VALUE} copies.
+	 */
+	public void add(T item, long copies) {
+		if (copies < 0)
+			throw new IllegalArgumentException("Copies must not be negative: " + copies);
+		if (copies == 0)
+			return;
+
+		long newTotal = Math.addExact(total, copies);
+		Integer slot = slots.get(item);
+		int s;
+		if (slot != null)
+			s = slot;
+		else {
+			if (distinct == items.length)
+				grow();
+			s = distinct++;
+			items[s] = item;
+			slots.put(item, s);
+		}
+		counts[s] += copies;
+		update(s, copies);
+		total = newTotal;
+	}
+
+	/**
+	 * This method will set the number of copies of an
+	 * item in the bag.
+	 *
+	 * @param item The item.
+	 * @param copies The number of copies, which can be 0
+	 * to remove the item.
+	 * @throws IllegalArgumentException If copies is negative.
+	 */
+	public void setCount(T item, long copies) {
+		if (copies < 0)
+			throw new IllegalArgumentException("Copies must not be negative: " + copies);
+
+		long current = count(item);
+		if (copies > current)
+			add(item, copies - current);
+		else if (copies < current)
+			removeCopies(slots.get(item), current - copies);
+	}
+
+	/**
+	 * This method will take a number of copies of an
+	 * item out of the bag, or all of them if there are
+	 * fewer.
+	 *
+	 * @param item The item to remove.
+	 * @param copies The most copies to remove.
+	 * @return The number of copies removed.
+	 * @throws IllegalArgumentException If copies is negative.
+	 */
+	public long remove(Object item, long copies) {
+		if (copies < 0)
+			throw new IllegalArgumentException("Copies must not be negative: " + copies);
+
+		Integer slot = slots.get(item);
+		if (slot == null || copies == 0)
+			return 0;
+		long removed = Math.min(copies, counts[slot]);
+		removeCopies(slot, removed);
+		return removed;
+	}
+
+	/**
+	 * This method will take one copy of an item out of the bag.
+	 *
+	 * @param object The item to remove.
+	 * @return Whether the bag held a copy.
+	 */
+	@Override
+	public boolean remove(Object object) {
+		return remove(object, 1) == 1;
+	}
+
+	/**
+	 * This method will return the number of copies of
+	 * an item in the bag.
+	 *
+	 * @param item The item.
+	 * @return The number of copies.
+	 */
+	public long count(Object item) {
+		Integer slot = slots.get(item);
+		return slot == null ? 0 : counts[slot];
+	}
+
+	/**
+	 * This method will return the number of copies of
+	 * all the items in the bag.
+	 *
+	 * @return The number of copies.
+	 */
+	public long count() {
+		return total;
+	}
+
+	/**
+	 * This method will return the number of distinct
+	 * items in the bag.
+	 *
+	 * @return The number of distinct items.
+	 */
+	public int distinctCount() {
+		return distinct;
+	}
+
+	/**
+	 * This method will return the distinct items in the bag.
+	 * The set is a copy.
+	 *
+	 * @return The distinct items.
+	 */
+	@SuppressWarnings("unchecked")
+	public Set<T> distinctItems() {
+		return new HashSet<>((Set<T>) slots.keySet());
+	}
+
+	@Override
+	public int size() {
+		return (int) Math.min(total, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return total == 0;
+	}
+
+	@Override
+	public boolean contains(Object object) {
+		return slots.containsKey(object);
+	}
+
+	/**
+	 * This method will take every copy of the items in a
+	 * collection out of the bag.
+	 *
+	 * @param items The items to remove.
+	 * @return Whether the bag changed.
+	 */
+	@Override
+	public boolean removeAll(Collection<?> items) {
+		Set<?> set = MembershipIndex.asSet(items);
+		boolean changed = false;
+		for (int s = distinct - 1; s >= 0; s--) {
+			if (set.contains(this.items[s])) {
+				removeCopies(s, counts[s]);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * This method will take every copy of the items not in
+	 * a collection out of the bag.
+	 *
+	 * @param items The items to keep.
+	 * @return Whether the bag changed.
+	 */
+	@Override
+	public boolean retainAll(Collection<?> items) {
+		Set<?> set = MembershipIndex.asSet(items);
+		boolean changed = false;
+		for (int s = distinct - 1; s >= 0; s--) {
+			if (!set.contains(this.items[s])) {
+				removeCopies(s, counts[s]);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public void clear() {
+		init(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * This method will return an iterator over every copy
+	 * in the bag, with the copies of each item together.
+	 *
+	 * @return The iterator.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+
+			private int slot;
+
+			/**
+			 * The number of copies of the item in the slot returned.
+			 */
+			private long copy;
+
+			private boolean canRemove;
+
+			@Override
+			public boolean hasNext() {
+				skipUsed();
+				return slot < distinct;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				skipUsed();
+				if (slot >= distinct)
+					throw new NoSuchElementException();
+				copy++;
+				canRemove = true;
+				return (T) items[slot];
+			}
+
+			@Override
+			public void remove() {
+				if (!canRemove)
+					throw new IllegalStateException();
+				canRemove = false;
+
+				if (counts[slot] == 1) {
+					// The last slot's item moves here, and none of it has been returned
+					removeCopies(slot, 1);
+					copy = 0;
+				} else {
+					removeCopies(slot, 1);
+					copy--;
+				}
+			}
+
+			private void skipUsed() {
+				while (slot < distinct && copy >= counts[slot]) {
+					slot++;
+					copy = 0;
+				}
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (int s = 0; s < distinct; s++) {
+			if (s > 0)
+				sb.append(", ");
+			sb.append(items[s]).append('=').append(counts[s]);
+		}
+		return sb.append('}').toString();
+	}
+
+	private void init(int capacity) {
+		items = new Object[capacity];
+		counts = new long[capacity];
+		tree = new long[capacity + 1];
+		slots = new HashMap<>();
+		distinct = 0;
+		total = 0;
+	}
+
+	/**
+	 * Picks a slot with probability proportional to its count.
+	 */
+	private int randomSlot() {
+		if (total == 0)
+			throw new NoSuchElementException("The bag is empty");
+		return find(RandomNumbers.nextLong(0, total - 1));
+	}
+
+	/**
+	 * Removes copies from a slot. If none are left, the last slot is
+	 * moved into it.
+	 */
+	private void removeCopies(int slot, long copies) {
+		counts[slot] -= copies;
+		update(slot, -copies);
+		total -= copies;
+		if (counts[slot] > 0)
+			return;
+
+		slots.remove(items[slot]);
+		int last = --distinct;
+		if (slot != last) {
+			long moved = counts[last];
+			items[slot] = items[last];
+			counts[slot] = moved;
+			update(slot, moved);
+			update(last, -moved);
+			slots.put(items[slot], slot);
+		}
+		items[last] = null;
+		counts[last] = 0;
+	}
+
+	/**
+	 * Adds to the count of a slot in the tree.
+	 */
+	private void update(int slot, long delta) {
+		for (int i = slot + 1; i < tree.length; i += i & -i)
+			tree[i] += delta;
+	}
+
+	/**
+	 * Returns the slot holding the copy at a position, counting the
+	 * copies slot by slot from 0. Walks down the tree from the largest
+	 * power of two, skipping whole ranges of slots before the position.
+	 */
+	private int find(long position) {
+		int i = 0;
+		for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+			int next = i + step;
+			if (next < tree.length && tree[next] <= position) {
+				i = next;
+				position -= tree[next];
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Doubles the capacity. The tree is rebuilt in linear time.
+	 */
+	private void grow() {
+		int capacity = items.length * 2;
+		items = Arrays.copyOf(items, capacity);
+		counts = Arrays.copyOf(counts, capacity);
+		tree = new long[capacity + 1];
+		for (int i = 1; i <= capacity; i++) {
+			tree[i] += counts[i - 1];
+			int parent = i + (i & -i);
+			if (parent <= capacity)
+				tree[parent] += tree[i];
+		}
+	}
+
+	/**
+	 * Writes each distinct item and its count.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(distinct);
+		for (int s = 0; s < distinct; s++) {
+			out.writeObject(items[s]);
+			out.writeLong(counts[s]);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int n = in.readInt();
+		if (n < 0)
+			throw new InvalidObjectException("Negative number of items: " + n);
+
+		init(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, n - 1)) << 1));
+		for (int s = 0; s < n; s++) {
+			T item = (T) in.readObject();
+			long copies = in.readLong();
+			if (copies <= 0)
+				throw new InvalidObjectException("Count must be positive: " + copies);
+			add(item, copies);
+		}
+	}
+
+}
@@ -1,10 +1,15 @@
 package liam.collections;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+
+import liam.util.Metrics;
+import liam.util.OperationMetrics;
 
 /**
  * The CycleList class allows the user to store a list
@@ -47,12 +52,26 @@ import java.util.Random;
  * </pre>
  * The program above prints each name in the people list as well
  * as the team they are in. When {@code teams.next()} is called, the
- * next value in the teams list is fetched.
+ * next value in the teams list is fetched.<br><br>
+ * 
+ * A CycleList can record its changes, including the position of the
+ * next value (see {@link Tracked}). Randomizing is recorded as a copy
+ * of the whole list.<br><br>
+ * 
+ * A CycleList can keep a hash index of its values (see
+ * {@link #indexItems()}), which makes {@link #contains(Object)} take
+ * constant time.<br><br>
+ * 
+ * Adding collections is timed when {@link Metrics} are enabled.
  * 
  * @author Liam
  */
 
-public class CycleList<T> implements Collection<T> {
+public class CycleList<T> implements Collection<T>, Tracked<T>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final OperationMetrics ADD_ALL = Metrics.operation("CycleList.addAll");
 
 	/**
 	 * We'll store elements in an {@link ArrayList} class.
@@ -67,6 +86,20 @@ public class CycleList<T> implements Collection<T> {
 
 	private int nextIndex;
 
+	/**
+	 * The changes made since the last save, or null if changes
+	 * aren't being tracked.
+	 */
+
+	private transient ChangeLog<T> changes;
+
+	/**
+	 * The number of copies of each value, or null if the values
+	 * aren't indexed.
+	 */
+
+	private transient MembershipIndex index;
+
 	/**
 	 * A constructor for the CycleList with no params. 
 	 * This constructor will initialize the elements
@@ -104,6 +137,10 @@ public class CycleList<T> implements Collection<T> {
 
 	public void add(int index, T value) {
 		elements.add(index, value);
+		if (changes != null)
+			changes.insert(index, value);
+		if (this.index != null)
+			this.index.add(value);
 	}
 
 	/**
@@ -114,8 +151,15 @@ public class CycleList<T> implements Collection<T> {
 	 */
 
 	public void addAll(List<? extends T> values) {
+		OperationMetrics.Timer timer = ADD_ALL.start();
+		if (changes != null)
+			changes.insertAll(elements.size(), values);
 		for (T value : values)
 			elements.add(value);
+		if (index != null)
+			index.addAll(values);
+		if (timer != null)
+			timer.stop(values.size(), 0);
 	}
 
 	/**
@@ -129,10 +173,17 @@ public class CycleList<T> implements Collection<T> {
 	 */
 
 	public void addAll(int index, List<? extends T> values) {
+		OperationMetrics.Timer timer = ADD_ALL.start();
+		if (changes != null)
+			changes.insertAll(index, values);
 		for (T value : values) {
 			elements.add(index, value);
 			index++;
 		}
+		if (this.index != null)
+			this.index.addAll(values);
+		if (timer != null)
+			timer.stop(values.size(), 0);
 	}
 
 	/**
@@ -144,7 +195,11 @@ public class CycleList<T> implements Collection<T> {
 	 */
 
 	public void remove(int index) {
-		elements.remove(index);
+		T value = elements.remove(index);
+		if (changes != null)
+			changes.remove(index);
+		if (this.index != null)
+			this.index.remove(value);
 	}
 
 	/**
@@ -182,6 +237,8 @@ public class CycleList<T> implements Collection<T> {
 
 	public void resetNext() {
 		nextIndex = 0;
+		if (changes != null)
+			changes.cursor(nextIndex);
 	}
 
 	/**
@@ -198,6 +255,8 @@ public class CycleList<T> implements Collection<T> {
 			throw new IndexOutOfBoundsException();
 		else
 			nextIndex = index;
+		if (changes != null)
+			changes.cursor(nextIndex);
 	}
 
 	/**
@@ -213,6 +272,8 @@ public class CycleList<T> implements Collection<T> {
 			random.add(elements.remove(new Random().nextInt(elements.size())));
 
 		elements = random;
+		if (changes != null)
+			changes.reset(elements);
 	}
 
 	/**
@@ -249,11 +310,13 @@ public class CycleList<T> implements Collection<T> {
 			nextIndex = 0;
 		else
 			nextIndex++;
+		if (changes != null)
+			changes.cursor(nextIndex);
 	}
 
 	@Override
 	public Iterator<T> iterator() {
-		return elements.iterator();
+		return index != null ? index.track(elements.iterator()) : elements.iterator();
 	}
 
 	@Override
@@ -263,7 +326,7 @@ public class CycleList<T> implements Collection<T> {
 
 	@Override
 	public boolean contains(Object object) {
-		return elements.contains(object);
+		return index != null ? index.contains(object) : elements.contains(object);
 	}
 
 	@Override
@@ -278,37 +341,140 @@ public class CycleList<T> implements Collection<T> {
 
 	@Override
 	public boolean add(T value) {
+		if (changes != null)
+			changes.insert(elements.size(), value);
+		if (index != null)
+			index.add(value);
 		return elements.add(value);
 	}
 
 	@Override
 	public boolean remove(Object object) {
-		return elements.remove(object);
+		if (index != null && !index.contains(object))
+			return false;
+
+		boolean changed = elements.remove(object);
+		if (changed && changes != null)
+			changes.removeItem(object);
+		if (changed && index != null)
+			index.remove(object);
+		return changed;
 	}
 
 	@Override
 	public boolean containsAll(Collection<?> elements) {
-		return this.elements.contains(elements);
+		return index != null ? index.containsAll(elements) : this.elements.containsAll(elements);
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends T> elements) {
-		return this.elements.addAll(elements);
+		OperationMetrics.Timer timer = ADD_ALL.start();
+		if (changes != null)
+			changes.insertAll(this.elements.size(), elements);
+		boolean changed = this.elements.addAll(elements);
+		if (index != null)
+			index.addAll(elements);
+		if (timer != null)
+			timer.stop(elements.size(), 0);
+		return changed;
 	}
 
 	@Override
 	public boolean removeAll(Collection<?> elements) {
-		return this.elements.removeAll(elements);
+		if (index != null && !index.mayContainAny(elements))
+			return false;
+
+		Set<?> set = MembershipIndex.asSet(elements);
+		boolean changed = this.elements.removeAll(set);
+		if (changed && changes != null)
+			changes.removeAll(elements);
+		if (changed && index != null)
+			index.removeEvery(set);
+		return changed;
 	}
 
 	@Override
 	public boolean retainAll(Collection<?> elements) {
-		return this.elements.retainAll(elements);
+		Set<?> set = MembershipIndex.asSet(elements);
+		boolean changed = this.elements.retainAll(set);
+		if (changed && changes != null)
+			changes.retainAll(elements);
+		if (changed && index != null)
+			index.retainEvery(set);
+		return changed;
 	}
 
 	@Override
 	public void clear() {
 		elements.clear();
+		if (changes != null)
+			changes.clear();
+		if (index != null)
+			index.clear();
+	}
+
+	@Override
+	public void trackChanges() {
+		changes = new ChangeLog<>();
+	}
+
+	@Override
+	public void untrackChanges() {
+		changes = null;
+	}
+
+	@Override
+	public ChangeLog<T> changes() {
+		return changes;
+	}
+
+	@Override
+	public void markSaved() {
+		if (changes != null)
+			changes.markSaved();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void replay(ChangeLog<? extends T> changes) {
+		nextIndex = ((ChangeLog<T>) changes).applyTo(elements, nextIndex);
+		if (index != null)
+			index = new MembershipIndex(elements);
+	}
+
+	/**
+	 * This method will start keeping a hash index of the values,
+	 * so {@link #contains(Object)} takes constant time and
+	 * {@link #containsAll(Collection)} takes time proportional
+	 * to the values checked. The index uses one map entry per
+	 * distinct value and is updated on every change; it isn't
+	 * saved with the list.<br><br>
+	 * 
+	 * Changes made directly to the list returned by
+	 * {@link #toArrayList()} aren't seen by the index. Calling
+	 * this method again rebuilds it.
+	 */
+
+	public void indexItems() {
+		index = new MembershipIndex(elements);
+	}
+
+	/**
+	 * This method will stop keeping the index of the values.
+	 */
+
+	public void unindexItems() {
+		index = null;
+	}
+
+	/**
+	 * This method will check whether the values are indexed.
+	 * 
+	 * @return Whether the values are indexed.
+	 */
+
+	public boolean isIndexed() {
+		return index != null;
 	}
 
 	@Override
@@ -1,30 +1,61 @@
 package liam.collections;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+
+import liam.util.Metrics;
+import liam.util.OperationMetrics;
 
 /**
  * This class acts like a deck of cards (not to be confused 
  * with the {@link java.util.Deque} class which is a double-ended 
  * queue). The items stored in this class can be placed on and
  * fetched from the top, the middle randomly or the bottom. The
- * items can also be shuffled.
+ * items can also be shuffled.<br><br>
+ * 
+ * A deck can record its changes (see {@link Tracked}). Shuffling is
+ * recorded as a copy of the whole deck.<br><br>
+ * 
+ * A deck can keep a hash index of its items (see {@link #indexItems()}),
+ * which makes {@link #contains(Object)} take constant time.<br><br>
+ * 
+ * Shuffles and placing collections are timed when {@link Metrics} are
+ * enabled.
  * 
  * @author Liam
  *
  * @param <T>
  * 			The type of items to be added.
  */
-public class Deck<T> implements Collection<T> {
+public class Deck<T> implements Collection<T>, Tracked<T>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final OperationMetrics SHUFFLE = Metrics.operation("Deck.shuffle");
+	private static final OperationMetrics PLACE_ALL = Metrics.operation("Deck.placeAll");
 
 	/**
 	 * This list will hold all the items.
 	 */
 	private ArrayList<T> items;
 
+	/**
+	 * The changes made since the last save, or null if changes
+	 * aren't being tracked.
+	 */
+	private transient ChangeLog<T> changes;
+
+	/**
+	 * The number of copies of each item, or null if the items
+	 * aren't indexed.
+	 */
+	private transient MembershipIndex index;
+
 	/**
 	 * This constructor will create an empty deck.
 	 */
@@ -51,6 +82,10 @@ public class Deck<T> implements Collection<T> {
 	 */
 	public void placeTop(T item) {
 		items.add(0, item);
+		if (changes != null)
+			changes.insert(0, item);
+		if (index != null)
+			index.add(item);
 	}
 
 	/**
@@ -61,11 +96,14 @@ public class Deck<T> implements Collection<T> {
 	 * 			The items to add to the top.
 	 */
 	public void placeTop(Collection<? extends T> items) {
+		OperationMetrics.Timer timer = PLACE_ALL.start();
 		List<T> list = new ArrayList<>();
 		for (T item : items)
 			list.add(0, item);
 		for (T item : list)
 			placeTop(item);
+		if (timer != null)
+			timer.stop(list.size(), 0);
 	}
 
 	/**
@@ -76,6 +114,10 @@ public class Deck<T> implements Collection<T> {
 	 */
 	public void placeBottom(T item) {
 		items.add(item);
+		if (changes != null)
+			changes.insert(items.size() - 1, item);
+		if (index != null)
+			index.add(item);
 	}
 
 	/**
@@ -86,8 +128,11 @@ public class Deck<T> implements Collection<T> {
 	 * 			The items to add to the bottom.
 	 */
 	public void placeBottom(Collection<? extends T> items) {
+		OperationMetrics.Timer timer = PLACE_ALL.start();
 		for (T item : items)
 			placeBottom(item);
+		if (timer != null)
+			timer.stop(items.size(), 0);
 	}
 
 	/**
@@ -97,10 +142,17 @@ public class Deck<T> implements Collection<T> {
 	 * 			The item to add to the bottom.
 	 */
 	public void placeMiddle(T item) {
+		int index;
 		if (items.size() < 2)
-			items.add(item);
+			index = items.size();
 		else
-			items.add(1 + new Random().nextInt(items.size() - 2), item);
+			index = 1 + new Random().nextInt(items.size() - 2);
+
+		items.add(index, item);
+		if (changes != null)
+			changes.insert(index, item);
+		if (this.index != null)
+			this.index.add(item);
 	}
 
 	/**
@@ -115,12 +167,19 @@ public class Deck<T> implements Collection<T> {
 	 * 			Whether the items added will be together.
 	 */
 	public void placeMiddle(Collection<? extends T> items, boolean isTogether) {
+		OperationMetrics.Timer timer = PLACE_ALL.start();
 		if (isTogether) {
 			int random = 1 + new Random().nextInt(this.items.size() - 1);
 			this.items.addAll(random, items);
+			if (changes != null)
+				changes.insertAll(random, items);
+			if (index != null)
+				index.addAll(items);
 		} else
 			for (T item : items)
 				placeMiddle(item);
+		if (timer != null)
+			timer.stop(items.size(), 0);
 	}
 	
 	/**
@@ -129,7 +188,12 @@ public class Deck<T> implements Collection<T> {
 	 * @return The top item.
 	 */
 	public T takeTop() {
-		return items.remove(0);
+		T item = items.remove(0);
+		if (changes != null)
+			changes.remove(0);
+		if (index != null)
+			index.remove(item);
+		return item;
 	}
 	
 	/**
@@ -138,7 +202,13 @@ public class Deck<T> implements Collection<T> {
 	 * @return The bottom item.
 	 */
 	public T takeBottom() {
-		return items.remove(items.size() - 1);
+		int index = items.size() - 1;
+		T item = items.remove(index);
+		if (changes != null)
+			changes.remove(index);
+		if (this.index != null)
+			this.index.remove(item);
+		return item;
 	}
 	
 	/**
@@ -147,7 +217,13 @@ public class Deck<T> implements Collection<T> {
 	 * @return The middle item.
 	 */
 	public T takeMiddle() {
-		return items.remove(1 + new Random().nextInt(items.size() - 2));
+		int index = 1 + new Random().nextInt(items.size() - 2);
+		T item = items.remove(index);
+		if (changes != null)
+			changes.remove(index);
+		if (this.index != null)
+			this.index.remove(item);
+		return item;
 	}
 	
 	/**
@@ -173,6 +249,7 @@ public class Deck<T> implements Collection<T> {
 	 * be in a random order.
 	 */
 	public void shuffle() {
+		OperationMetrics.Timer timer = SHUFFLE.start();
 		ArrayList<T> random = new ArrayList<>();
 		int size = items.size();
 
@@ -180,11 +257,15 @@ public class Deck<T> implements Collection<T> {
 			random.add(items.remove(new Random().nextInt(items.size())));
 
 		items = random;
+		if (changes != null)
+			changes.reset(items);
+		if (timer != null)
+			timer.stop(size, 0);
 	}
 
 	@Override
 	public Iterator<T> iterator() {
-		return items.iterator();
+		return index != null ? index.track(items.iterator()) : items.iterator();
 	}
 
 	@Override
@@ -199,7 +280,7 @@ public class Deck<T> implements Collection<T> {
 
 	@Override
 	public boolean contains(Object object) {
-		return items.contains(object);
+		return index != null ? index.contains(object) : items.contains(object);
 	}
 
 	@Override
@@ -225,12 +306,20 @@ public class Deck<T> implements Collection<T> {
 
 	@Override
 	public boolean remove(Object object) {
-		return items.remove(object);
+		if (index != null && !index.contains(object))
+			return false;
+
+		boolean changed = items.remove(object);
+		if (changed && changes != null)
+			changes.removeItem(object);
+		if (changed && index != null)
+			index.remove(object);
+		return changed;
 	}
 
 	@Override
 	public boolean containsAll(Collection<?> items) {
-		return items.contains(items);
+		return index != null ? index.containsAll(items) : this.items.containsAll(items);
 	}
 
 	/**
@@ -246,17 +335,92 @@ public class Deck<T> implements Collection<T> {
 
 	@Override
 	public boolean removeAll(Collection<?> items) {
-		return this.items.removeAll(items);
+		if (index != null && !index.mayContainAny(items))
+			return false;
+
+		Set<?> set = MembershipIndex.asSet(items);
+		boolean changed = this.items.removeAll(set);
+		if (changed && changes != null)
+			changes.removeAll(items);
+		if (changed && index != null)
+			index.removeEvery(set);
+		return changed;
 	}
 
 	@Override
 	public boolean retainAll(Collection<?> items) {
-		return this.items.retainAll(items);
+		Set<?> set = MembershipIndex.asSet(items);
+		boolean changed = this.items.retainAll(set);
+		if (changed && changes != null)
+			changes.retainAll(items);
+		if (changed && index != null)
+			index.retainEvery(set);
+		return changed;
 	}
 
 	@Override
 	public void clear() {
 		items.clear();
+		if (changes != null)
+			changes.clear();
+		if (index != null)
+			index.clear();
+	}
+
+	@Override
+	public void trackChanges() {
+		changes = new ChangeLog<>();
+	}
+
+	@Override
+	public void untrackChanges() {
+		changes = null;
+	}
+
+	@Override
+	public ChangeLog<T> changes() {
+		return changes;
+	}
+
+	@Override
+	public void markSaved() {
+		if (changes != null)
+			changes.markSaved();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void replay(ChangeLog<? extends T> changes) {
+		((ChangeLog<T>) changes).applyTo(items, 0);
+		if (index != null)
+			index = new MembershipIndex(items);
+	}
+
+	/**
+	 * This method will start keeping a hash index of the items, so
+	 * {@link #contains(Object)} takes constant time and
+	 * {@link #containsAll(Collection)} takes time proportional to the
+	 * items checked. The index uses one map entry per distinct item and
+	 * is updated on every change; it isn't saved with the deck.
+	 */
+	public void indexItems() {
+		index = new MembershipIndex(items);
+	}
+
+	/**
+	 * This method will stop keeping the index of the items.
+	 */
+	public void unindexItems() {
+		index = null;
+	}
+
+	/**
+	 * This method will check whether the items are indexed.
+	 * 
+	 * @return Whether the items are indexed.
+	 */
+	public boolean isIndexed() {
+		return index != null;
 	}
 
 	@Override
@@ -0,0 +1,170 @@
+package liam.collections;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * This class counts how many copies of each item a collection holds, so
+ * {@link Bag}, {@link Deck} and {@link CycleList} can check whether they
+ * hold an item without searching their list. The collection keeps it up
+ * to date on every change.<br><br>
+ *
+ * It uses the items' hashCode and equals, so items which are changed in a
+ * way that changes their hash while in the collection won't be found.
+ *
+ * @author Liam
+ */
+final class MembershipIndex {
+
+	/**
+	 * The number of copies of each item. The count is in an array so it
+	 * can be changed without boxing.
+	 */
+	private final HashMap<Object, int[]> counts;
+
+	/**
+	 * This constructor will create an index of the items in a collection.
+	 *
+	 * @param items The items to index.
+	 */
+	MembershipIndex(Collection<?> items) {
+		counts = new HashMap<>(Math.max(16, (int) (items.size() / 0.75f) + 1));
+		addAll(items);
+	}
+
+	boolean contains(Object item) {
+		return counts.containsKey(item);
+	}
+
+	/**
+	 * This method will check whether every item is held, in time
+	 * proportional to the number of items checked.
+	 *
+	 * @param items The items to check.
+	 * @return Whether they are all held.
+	 */
+	boolean containsAll(Collection<?> items) {
+		for (Object item : items)
+			if (!counts.containsKey(item))
+				return false;
+		return true;
+	}
+
+	/**
+	 * This method will check whether any of the items might be held. It
+	 * can only say no for collections which use equals and hashCode, so
+	 * it says yes for other sets (such as a TreeSet with a comparator).
+	 *
+	 * @param items The items to check.
+	 * @return Whether at least one might be held.
+	 */
+	boolean mayContainAny(Collection<?> items) {
+		if (items instanceof Set && !(items instanceof HashSet))
+			return true;
+		for (Object item : items)
+			if (counts.containsKey(item))
+				return true;
+		return false;
+	}
+
+	void add(Object item) {
+		int[] count = counts.get(item);
+		if (count == null)
+			counts.put(item, new int[] { 1 });
+		else
+			count[0]++;
+	}
+
+	void addAll(Collection<?> items) {
+		for (Object item : items)
+			add(item);
+	}
+
+	/**
+	 * This method will remove one copy of an item.
+	 *
+	 * @param item The item to remove.
+	 * @return Whether there was a copy to remove.
+	 */
+	boolean remove(Object item) {
+		int[] count = counts.get(item);
+		if (count == null)
+			return false;
+		if (--count[0] == 0)
+			counts.remove(item);
+		return true;
+	}
+
+	/**
+	 * This method will remove every copy of the items in a set, as
+	 * {@link Collection#removeAll(Collection)} does, asking the set which
+	 * items are in it.
+	 *
+	 * @param items The items to remove.
+	 */
+	void removeEvery(Set<?> items) {
+		counts.keySet().removeIf(items::contains);
+	}
+
+	/**
+	 * This method will remove every copy of the items not in a set, as
+	 * {@link Collection#retainAll(Collection)} does.
+	 *
+	 * @param items The items to keep.
+	 */
+	void retainEvery(Set<?> items) {
+		counts.keySet().removeIf(item -> !items.contains(item));
+	}
+
+	void clear() {
+		counts.clear();
+	}
+
+	/**
+	 * This method will wrap an iterator over the collection, so items
+	 * removed through it are removed from the index as well.
+	 *
+	 * @param iterator The collection's iterator.
+	 * @return The wrapped iterator.
+	 */
+	<T> Iterator<T> track(Iterator<T> iterator) {
+		return new Iterator<T>() {
+
+			private T last;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public T next() {
+				return last = iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				MembershipIndex.this.remove(last);
+			}
+		};
+	}
+
+	/**
+	 * This method will return a collection as a set, so checking each
+	 * item of a list against it takes constant time. This makes
+	 * removeAll and retainAll take time proportional to the sizes of both
+	 * collections, rather than their product. Sets are returned as they
+	 * are, so their own idea of equality is kept.
+	 *
+	 * @param items The collection.
+	 * @return The collection, or a set of its items.
+	 */
+	static Set<?> asSet(Collection<?> items) {
+		return items instanceof Set ? (Set<?>) items : new HashSet<>(items);
+	}
+
+}
@@ -0,0 +1,53 @@
+package liam.collections;
+
+/**
+ * This interface is implemented by collections which can record the
+ * changes made to them in a {@link ChangeLog}. It allows a large
+ * collection to be saved once in full and then checkpointed by saving
+ * only the changes (see {@code liam.io.ObjectIO.writeDelta}).<br><br>
+ *
+ * Changes made through the list returned by {@code toArrayList()} or
+ * through an iterator are not recorded.
+ *
+ * @author Liam
+ *
+ * @param <T>
+ * 			The type of items in the collection.
+ */
+public interface Tracked<T> {
+
+	/**
+	 * This method will start recording changes in a new, empty log.
+	 * Any changes recorded before are discarded.
+	 */
+	void trackChanges();
+
+	/**
+	 * This method will stop recording changes and discard the log.
+	 */
+	void untrackChanges();
+
+	/**
+	 * This method will return the changes recorded since the last save,
+	 * or null if changes aren't being tracked.
+	 *
+	 * @return The change log.
+	 */
+	ChangeLog<T> changes();
+
+	/**
+	 * This method will clear the change log after the collection (or
+	 * its changes) have been saved.
+	 */
+	void markSaved();
+
+	/**
+	 * This method will apply changes recorded by another copy of the
+	 * collection to this one. The changes are not recorded in this
+	 * collection's own log.
+	 *
+	 * @param changes The changes to apply.
+	 */
+	void replay(ChangeLog<? extends T> changes);
+
+}
@@ -0,0 +1,59 @@
+package liam.io;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The result of reading or writing many files at once with
+ * {@link ObjectIO}. Each file either succeeded, with the object read
+ * (or written), or failed with an exception or error (such as a
+ * StackOverflowError while deserializing).
+ *
+ * @author Liam
+ */
+public final class BulkResult {
+
+	private final Map<Path, Object> values;
+	private final Map<Path, Throwable> errors;
+
+	BulkResult(Map<Path, Object> values, Map<Path, Throwable> errors) {
+		this.values = Collections.unmodifiableMap(values);
+		this.errors = Collections.unmodifiableMap(errors);
+	}
+
+	/**
+	 * This method will return the objects of the files which succeeded,
+	 * in the order the files were given.
+	 *
+	 * @return The objects by file.
+	 */
+	public Map<Path, Object> values() {
+		return values;
+	}
+
+	/**
+	 * This method will return the exceptions and errors of the files
+	 * which failed, in the order the files were given.
+	 *
+	 * @return The exceptions and errors by file.
+	 */
+	public Map<Path, Throwable> errors() {
+		return errors;
+	}
+
+	/**
+	 * This method will check if any file failed.
+	 *
+	 * @return Whether there were any errors.
+	 */
+	public boolean hasErrors() {
+		return !errors.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "BulkResult[" + values.size() + " succeeded, " + errors.size() + " failed]";
+	}
+
+}
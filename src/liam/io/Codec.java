@@ -0,0 +1,125 @@
+package liam.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The compression codecs which can be used to write compressed object
+ * files with {@link ObjectIO}. Files are compressed in blocks, and the
+ * codec used is recorded in the file so it can be read back without
+ * knowing how it was written.
+ *
+ * @author Liam
+ */
+public enum Codec {
+
+	/**
+	 * The JDK's Deflate compression. Smaller files, slower.
+	 */
+	DEFLATE(1) {
+		@Override
+		byte[] compress(byte[] src, int length) {
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				deflater.setInput(src, 0, length);
+				deflater.finish();
+
+				byte[] dst = new byte[length + length / 1000 + 64];
+				int size = 0;
+				while (!deflater.finished()) {
+					if (size == dst.length)
+						dst = Arrays.copyOf(dst, dst.length * 2);
+					size += deflater.deflate(dst, size, dst.length - size);
+				}
+				return Arrays.copyOf(dst, size);
+			} finally {
+				deflater.end();
+			}
+		}
+
+		@Override
+		void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException {
+			Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(src, 0, length);
+				int size = 0;
+				while (size < rawLength) {
+					int n = inflater.inflate(dst, size, rawLength - size);
+					if (n == 0 && (inflater.finished() || inflater.needsInput()))
+						break;
+					size += n;
+				}
+				if (size != rawLength)
+					throw new IOException("Corrupt Deflate block");
+			} catch (DataFormatException ex) {
+				throw new IOException("Corrupt Deflate block", ex);
+			} finally {
+				inflater.end();
+			}
+		}
+	},
+
+	/**
+	 * A pure Java LZ4 compressor. Larger files than {@link #DEFLATE},
+	 * but much faster to write and read.
+	 */
+	LZ4(2) {
+		@Override
+		byte[] compress(byte[] src, int length) {
+			return liam.io.LZ4.compress(src, length);
+		}
+
+		@Override
+		void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException {
+			liam.io.LZ4.decompress(src, length, dst, rawLength);
+		}
+	};
+
+	/**
+	 * The id written to the file header.
+	 */
+	final int id;
+
+	private Codec(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * This method will compress the first length bytes of src.
+	 *
+	 * @param src The bytes to compress.
+	 * @param length The number of bytes to compress.
+	 * @return The compressed bytes.
+	 */
+	abstract byte[] compress(byte[] src, int length);
+
+	/**
+	 * This method will decompress a block into dst, which must hold
+	 * exactly rawLength bytes once decompressed.
+	 *
+	 * @param src The compressed bytes.
+	 * @param length The number of compressed bytes.
+	 * @param dst The array to decompress into.
+	 * @param rawLength The number of bytes once decompressed.
+	 * @throws IOException If the block is corrupt.
+	 */
+	abstract void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException;
+
+	/**
+	 * This method will find the codec with an id read from a file header.
+	 *
+	 * @param id The id of the codec.
+	 * @return The codec.
+	 * @throws IOException If there is no codec with the id.
+	 */
+	static Codec of(int id) throws IOException {
+		for (Codec codec : values())
+			if (codec.id == id)
+				return codec;
+		throw new IOException("Unknown codec: " + id);
+	}
+
+}
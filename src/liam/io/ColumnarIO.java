@@ -0,0 +1,660 @@
+package liam.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * The ColumnarIO class saves collections of objects of one type (for
+ * example a {@code Deck<Trade>} or a {@code Bag<Trade>}) column by column
+ * instead of object by object. Each field of the objects is written as
+ * one contiguous column: primitive fields as primitive arrays, Strings
+ * with dictionary encoding, and any other field as a serialized array.
+ * Loading a collection then takes a few bulk reads, and
+ * {@link #readColumns(Path, String...)} can read only the columns
+ * needed.<br><br>
+ *
+ * Records are supported, as are classes with a no-argument constructor.
+ * Static and transient fields are not saved. Each column is named after
+ * its field, except that a superclass field hidden by a subclass field of
+ * the same name is named after its class too (e.g. "com.example.Base.id").
+ * The file layout is:
+ *
+ * <pre>
+ * header:    "LIOC", version (1 byte), row count (int), column count (int),
+ *            directory size (int)
+ * directory: per column: name (modified UTF-8), type (1 byte), offset (long), length (long)
+ * data:      the columns
+ * </pre>
+ *
+ * For example:
+ *
+ * <pre>
+ * {@code
+ * ColumnarIO.write(deck, Trade.class, path);
+ * Deck<Trade> copy = new Deck<>(ColumnarIO.read(path, Trade.class));
+ * double[] prices = (double[]) ColumnarIO.readColumns(path, "price").get("price");
+ * }
+ * </pre>
+ *
+ * @author Liam
+ */
+public final class ColumnarIO {
+
+	private static final byte[] MAGIC = { 'L', 'I', 'O', 'C' };
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = MAGIC.length + 13;
+
+	private static final int BOOLEAN = 1;
+	private static final int BYTE = 2;
+	private static final int SHORT = 3;
+	private static final int CHAR = 4;
+	private static final int INT = 5;
+	private static final int LONG = 6;
+	private static final int FLOAT = 7;
+	private static final int DOUBLE = 8;
+	private static final int STRING = 9;
+	private static final int OBJECT = 10;
+
+	/**
+	 * A column's entry in the file's directory.
+	 */
+	private static final class Column {
+
+		private final String name;
+		private final int type;
+		private long offset;
+		private long length;
+
+		private Column(String name, int type) {
+			this.name = name;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * Class shouldn't be instantiated.
+	 */
+	private ColumnarIO() {
+	}
+
+	/**
+	 * This method will write a collection of objects column by column.
+	 *
+	 * @param items The objects to write. They must all be of the given
+	 * class exactly (not subclasses) and not null.
+	 * @param type The class of the objects.
+	 * @param path The Path to be written.
+	 * @param <T> The type of the objects.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static <T> void write(Collection<? extends T> items, Class<T> type, Path path) throws IOException {
+		Map<String, Field> fields = fields(type);
+		Object[] rows = items.toArray();
+		for (Object row : rows)
+			if (row == null || row.getClass() != type)
+				throw new IllegalArgumentException("Every item must be a " + type.getName() + ": " + row);
+
+		List<Column> columns = new ArrayList<>();
+		List<byte[]> data = new ArrayList<>();
+		for (Map.Entry<String, Field> entry : fields.entrySet()) {
+			Field field = entry.getValue();
+			Column column = new Column(entry.getKey(), typeOf(field.getType()));
+			byte[] bytes;
+			try {
+				bytes = encode(column.type, field, rows);
+			} catch (IllegalAccessException ex) {
+				throw new IOException("Can't read field " + field, ex);
+			}
+			column.length = bytes.length;
+			columns.add(column);
+			data.add(bytes);
+		}
+
+		long offset = header(rows.length, columns).length;
+		for (Column column : columns) {
+			column.offset = offset;
+			offset += column.length;
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, ByteBuffer.wrap(header(rows.length, columns)));
+			for (byte[] bytes : data)
+				writeFully(channel, ByteBuffer.wrap(bytes));
+		}
+	}
+
+	/**
+	 * This method will read a collection written by
+	 * {@link #write(Collection, Class, Path)}. Fields with no column in
+	 * the file are left at their default values.
+	 *
+	 * @param path The Path to read.
+	 * @param type The class of the objects.
+	 * @param <T> The type of the objects.
+	 * @return The objects read, in the order they were written.
+	 * @throws IOException If the file can't be read or doesn't match the class.
+	 */
+	public static <T> List<T> read(Path path, Class<T> type) throws IOException {
+		return read(path, type, fields(type).keySet().toArray(new String[0]));
+	}
+
+	/**
+	 * This method will read a collection written by
+	 * {@link #write(Collection, Class, Path)}, reading only some of the
+	 * columns. The other fields are left at their default values.
+	 *
+	 * @param path The Path to read.
+	 * @param type The class of the objects.
+	 * @param columns The names of the fields to read.
+	 * @param <T> The type of the objects.
+	 * @return The objects read, in the order they were written.
+	 * @throws IOException If the file can't be read or doesn't match the class.
+	 */
+	public static <T> List<T> read(Path path, Class<T> type, String... columns) throws IOException {
+		Map<String, Field> byName = fields(type);
+		List<Field> fields = new ArrayList<>(byName.values());
+
+		List<String> wanted = new ArrayList<>();
+		for (String column : columns)
+			if (byName.containsKey(column))
+				wanted.add(column);
+
+		int[] rows = new int[1];
+		Map<String, Object> values = readColumns(path, rows, wanted, true);
+		for (Map.Entry<String, Object> column : values.entrySet()) {
+			Field field = byName.get(column.getKey());
+			if (column.getValue().getClass().getComponentType() != arrayComponent(field.getType()))
+				throw new IOException("Column " + column.getKey() + " doesn't match field " + field);
+		}
+
+		try {
+			List<T> items = new ArrayList<>(rows[0]);
+			if (type.isRecord()) {
+				Class<?>[] parameters = new Class<?>[fields.size()];
+				for (int i = 0; i < parameters.length; i++)
+					parameters[i] = fields.get(i).getType();
+				Constructor<T> constructor = type.getDeclaredConstructor(parameters);
+				constructor.setAccessible(true);
+
+				List<IntFunction<Object>> getters = new ArrayList<>();
+				for (int i = 0; i < parameters.length; i++)
+					getters.add(getter(values.get(fields.get(i).getName()), parameters[i]));
+
+				for (int row = 0; row < rows[0]; row++) {
+					Object[] args = new Object[parameters.length];
+					for (int i = 0; i < args.length; i++)
+						args[i] = getters.get(i).apply(row);
+					items.add(constructor.newInstance(args));
+				}
+			} else {
+				Constructor<T> constructor = type.getDeclaredConstructor();
+				constructor.setAccessible(true);
+				for (int row = 0; row < rows[0]; row++)
+					items.add(constructor.newInstance());
+
+				for (Map.Entry<String, Object> column : values.entrySet())
+					decode(byName.get(column.getKey()), column.getValue(), items);
+			}
+			return items;
+		} catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+				| InvocationTargetException ex) {
+			throw new IOException("Can't create instances of " + type.getName(), ex);
+		}
+	}
+
+	/**
+	 * This method will read some of the columns of a file as arrays:
+	 * {@code int[]} for an int field, {@code String[]} for a String
+	 * field, {@code Object[]} for a field of any other class, etc. If no
+	 * columns are given, every column is read.
+	 *
+	 * @param path The Path to read.
+	 * @param columns The names of the columns to read.
+	 * @return The arrays by column name, in the order they were asked for.
+	 * @throws IOException If the file can't be read.
+	 */
+	public static Map<String, Object> readColumns(Path path, String... columns) throws IOException {
+		return readColumns(path, new int[1], columns.length == 0 ? null : Arrays.asList(columns), false);
+	}
+
+	/**
+	 * Reads the named columns, or every column if names is null. Columns
+	 * missing from the file are skipped or cause an exception. The number
+	 * of rows is returned in rows[0].
+	 */
+	private static Map<String, Object> readColumns(Path path, int[] rows, List<String> names, boolean skipMissing)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = read(channel, 0, HEADER_SIZE);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, MAGIC))
+				throw new IOException("Not a columnar file: " + path);
+			if (header.get() != VERSION)
+				throw new IOException("Unsupported columnar version: " + path);
+
+			rows[0] = header.getInt();
+			int count = header.getInt();
+			int directorySize = header.getInt();
+			long size = channel.size();
+			if (rows[0] < 0 || count < 0 || directorySize < 0 || directorySize > size - HEADER_SIZE)
+				throw new StreamCorruptedException("Corrupt columnar header: " + path);
+
+			Map<String, Column> directory = new LinkedHashMap<>();
+			ByteBuffer entries = read(channel, HEADER_SIZE, directorySize);
+			DataInputStream in = new DataInputStream(
+					new ByteArrayInputStream(entries.array(), 0, directorySize));
+			try {
+				for (int i = 0; i < count; i++) {
+					Column column = new Column(in.readUTF(), in.readUnsignedByte());
+					column.offset = in.readLong();
+					column.length = in.readLong();
+					if (column.offset < HEADER_SIZE || column.length < 0 || column.offset > size - column.length)
+						throw new StreamCorruptedException("Corrupt columnar directory: " + path);
+					directory.put(column.name, column);
+				}
+			} catch (EOFException ex) {
+				StreamCorruptedException corrupt = new StreamCorruptedException("Corrupt columnar directory: " + path);
+				corrupt.initCause(ex);
+				throw corrupt;
+			}
+
+			Map<String, Object> values = new LinkedHashMap<>();
+			for (String name : names == null ? directory.keySet() : names) {
+				Column column = directory.get(name);
+				if (column == null && skipMissing)
+					continue;
+				if (column == null)
+					throw new IOException("No column " + name + " in " + path);
+				if (column.length > Integer.MAX_VALUE)
+					throw new IOException("Column " + name + " is too large to read");
+				try {
+					values.put(name, decode(column.type, read(channel, column.offset, (int) column.length), rows[0]));
+				} catch (BufferUnderflowException ex) {
+					StreamCorruptedException corrupt = new StreamCorruptedException("Column " + name + " is too short in " + path);
+					corrupt.initCause(ex);
+					throw corrupt;
+				}
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * Encodes one field of every row as a column.
+	 */
+	private static byte[] encode(int type, Field field, Object[] rows) throws IOException, IllegalAccessException {
+		int n = rows.length;
+		ByteBuffer buffer;
+		switch (type) {
+		case BOOLEAN:
+			buffer = ByteBuffer.allocate(n);
+			for (Object row : rows)
+				buffer.put((byte) (field.getBoolean(row) ? 1 : 0));
+			return buffer.array();
+		case BYTE:
+			buffer = ByteBuffer.allocate(n);
+			for (Object row : rows)
+				buffer.put(field.getByte(row));
+			return buffer.array();
+		case SHORT:
+			buffer = ByteBuffer.allocate(2 * n);
+			for (Object row : rows)
+				buffer.putShort(field.getShort(row));
+			return buffer.array();
+		case CHAR:
+			buffer = ByteBuffer.allocate(2 * n);
+			for (Object row : rows)
+				buffer.putChar(field.getChar(row));
+			return buffer.array();
+		case INT:
+			buffer = ByteBuffer.allocate(4 * n);
+			for (Object row : rows)
+				buffer.putInt(field.getInt(row));
+			return buffer.array();
+		case LONG:
+			buffer = ByteBuffer.allocate(8 * n);
+			for (Object row : rows)
+				buffer.putLong(field.getLong(row));
+			return buffer.array();
+		case FLOAT:
+			buffer = ByteBuffer.allocate(4 * n);
+			for (Object row : rows)
+				buffer.putFloat(field.getFloat(row));
+			return buffer.array();
+		case DOUBLE:
+			buffer = ByteBuffer.allocate(8 * n);
+			for (Object row : rows)
+				buffer.putDouble(field.getDouble(row));
+			return buffer.array();
+		case STRING:
+			return encodeStrings(field, rows);
+		default:
+			Object[] values = new Object[n];
+			for (int i = 0; i < n; i++)
+				values[i] = field.get(rows[i]);
+			return ObjectIO.serialize(values);
+		}
+	}
+
+	/**
+	 * Strings are written as a dictionary of the distinct values followed
+	 * by an index into the dictionary for every row (-1 for null).
+	 */
+	private static byte[] encodeStrings(Field field, Object[] rows) throws IllegalAccessException {
+		Map<String, Integer> codes = new HashMap<>();
+		List<byte[]> dictionary = new ArrayList<>();
+		int[] indices = new int[rows.length];
+		int dictionaryBytes = 0;
+
+		for (int i = 0; i < rows.length; i++) {
+			String value = (String) field.get(rows[i]);
+			if (value == null) {
+				indices[i] = -1;
+				continue;
+			}
+
+			Integer code = codes.get(value);
+			if (code == null) {
+				code = dictionary.size();
+				codes.put(value, code);
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				dictionary.add(bytes);
+				dictionaryBytes += 4 + bytes.length;
+			}
+			indices[i] = code;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(4 + dictionaryBytes + 4 * rows.length);
+		buffer.putInt(dictionary.size());
+		for (byte[] bytes : dictionary)
+			buffer.putInt(bytes.length).put(bytes);
+		buffer.asIntBuffer().put(indices);
+		return buffer.array();
+	}
+
+	/**
+	 * Decodes a column into an array. A column too short for its rows
+	 * throws a BufferUnderflowException.
+	 */
+	private static Object decode(int type, ByteBuffer buffer, int rows) throws IOException {
+		if ((long) rows * width(type) > buffer.remaining())
+			throw new BufferUnderflowException();
+
+		switch (type) {
+		case BOOLEAN: {
+			boolean[] values = new boolean[rows];
+			for (int i = 0; i < rows; i++)
+				values[i] = buffer.get() != 0;
+			return values;
+		}
+		case BYTE: {
+			byte[] values = new byte[rows];
+			buffer.get(values);
+			return values;
+		}
+		case SHORT: {
+			short[] values = new short[rows];
+			buffer.asShortBuffer().get(values);
+			return values;
+		}
+		case CHAR: {
+			char[] values = new char[rows];
+			buffer.asCharBuffer().get(values);
+			return values;
+		}
+		case INT: {
+			int[] values = new int[rows];
+			buffer.asIntBuffer().get(values);
+			return values;
+		}
+		case LONG: {
+			long[] values = new long[rows];
+			buffer.asLongBuffer().get(values);
+			return values;
+		}
+		case FLOAT: {
+			float[] values = new float[rows];
+			buffer.asFloatBuffer().get(values);
+			return values;
+		}
+		case DOUBLE: {
+			double[] values = new double[rows];
+			buffer.asDoubleBuffer().get(values);
+			return values;
+		}
+		case STRING: {
+			int size = buffer.getInt();
+			if (size < 0 || size > buffer.remaining() / 4)
+				throw new StreamCorruptedException("Invalid dictionary size: " + size);
+			String[] dictionary = new String[size];
+			for (int i = 0; i < dictionary.length; i++) {
+				int length = buffer.getInt();
+				if (length < 0 || length > buffer.remaining())
+					throw new StreamCorruptedException("Invalid string length: " + length);
+				byte[] bytes = new byte[length];
+				buffer.get(bytes);
+				dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+
+			int[] indices = new int[rows];
+			buffer.asIntBuffer().get(indices);
+			String[] values = new String[rows];
+			for (int i = 0; i < rows; i++) {
+				if (indices[i] < -1 || indices[i] >= dictionary.length)
+					throw new StreamCorruptedException("Invalid dictionary index: " + indices[i]);
+				values[i] = indices[i] < 0 ? null : dictionary[indices[i]];
+			}
+			return values;
+		}
+		case OBJECT:
+			try {
+				byte[] bytes = new byte[buffer.remaining()];
+				buffer.get(bytes);
+				Object values = ObjectIO.deserialize(bytes);
+				if (!(values instanceof Object[]) || ((Object[]) values).length != rows)
+					throw new StreamCorruptedException("Object column doesn't hold one value per row");
+				return values;
+			} catch (ClassNotFoundException ex) {
+				throw new IOException("Class of column values not found", ex);
+			}
+		default:
+			throw new IOException("Unknown column type: " + type);
+		}
+	}
+
+	/**
+	 * Returns the fewest bytes a row takes in a column of a type.
+	 */
+	private static int width(int type) {
+		switch (type) {
+		case BOOLEAN:
+		case BYTE:
+			return 1;
+		case SHORT:
+		case CHAR:
+			return 2;
+		case INT:
+		case FLOAT:
+		case STRING:
+			return 4;
+		case LONG:
+		case DOUBLE:
+			return 8;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Sets a field of every item from a column.
+	 */
+	private static void decode(Field field, Object column, List<?> items) throws IllegalAccessException {
+		int n = items.size();
+		Class<?> type = field.getType();
+		if (type == int.class) {
+			int[] values = (int[]) column;
+			for (int i = 0; i < n; i++)
+				field.setInt(items.get(i), values[i]);
+		} else if (type == long.class) {
+			long[] values = (long[]) column;
+			for (int i = 0; i < n; i++)
+				field.setLong(items.get(i), values[i]);
+		} else if (type == double.class) {
+			double[] values = (double[]) column;
+			for (int i = 0; i < n; i++)
+				field.setDouble(items.get(i), values[i]);
+		} else {
+			for (int i = 0; i < n; i++)
+				field.set(items.get(i), Array.get(column, i));
+		}
+	}
+
+	private static byte[] header(int rows, List<Column> columns) throws IOException {
+		ByteArrayOutputStream directory = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(directory)) {
+			for (Column column : columns) {
+				out.writeUTF(column.name);
+				out.writeByte(column.type);
+				out.writeLong(column.offset);
+				out.writeLong(column.length);
+			}
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + directory.size());
+		header.put(MAGIC).put((byte) VERSION).putInt(rows).putInt(columns.size()).putInt(directory.size());
+		header.put(directory.toByteArray());
+		return header.array();
+	}
+
+	/**
+	 * Returns the fields saved for a class by column name: a record's
+	 * components, or every non-static, non-transient field of a class and
+	 * its superclasses. A column is named after its field, unless a
+	 * subclass has a field with the same name, in which case the name of
+	 * the class declaring it comes first (e.g. "com.example.Base.id").
+	 * Field names can't contain a '.', so the names never clash.
+	 */
+	private static Map<String, Field> fields(Class<?> type) throws IOException {
+		Map<String, Field> fields = new LinkedHashMap<>();
+		try {
+			if (type.isRecord()) {
+				for (RecordComponent component : type.getRecordComponents())
+					fields.put(component.getName(), type.getDeclaredField(component.getName()));
+			} else {
+				for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass())
+					for (Field field : c.getDeclaredFields())
+						if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+							String name = field.getName();
+							if (fields.containsKey(name))
+								name = c.getName() + "." + name;
+							fields.put(name, field);
+						}
+			}
+		} catch (NoSuchFieldException ex) {
+			throw new IOException("Can't find the fields of " + type.getName(), ex);
+		}
+
+		for (Field field : fields.values())
+			field.setAccessible(true);
+		return fields;
+	}
+
+	private static int typeOf(Class<?> type) {
+		if (type == boolean.class)
+			return BOOLEAN;
+		if (type == byte.class)
+			return BYTE;
+		if (type == short.class)
+			return SHORT;
+		if (type == char.class)
+			return CHAR;
+		if (type == int.class)
+			return INT;
+		if (type == long.class)
+			return LONG;
+		if (type == float.class)
+			return FLOAT;
+		if (type == double.class)
+			return DOUBLE;
+		if (type == String.class)
+			return STRING;
+		return OBJECT;
+	}
+
+	/**
+	 * Returns the component type of the array a field is read into.
+	 */
+	private static Class<?> arrayComponent(Class<?> type) {
+		return type.isPrimitive() || type == String.class ? type : Object.class;
+	}
+
+	/**
+	 * Returns a function reading a row of a column, or the default value
+	 * of the type if the column wasn't read.
+	 */
+	private static IntFunction<Object> getter(Object column, Class<?> type) {
+		if (column == null) {
+			Object value = type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+			return row -> value;
+		}
+		if (column instanceof int[]) {
+			int[] values = (int[]) column;
+			return row -> values[row];
+		}
+		if (column instanceof long[]) {
+			long[] values = (long[]) column;
+			return row -> values[row];
+		}
+		if (column instanceof double[]) {
+			double[] values = (double[]) column;
+			return row -> values[row];
+		}
+		if (column instanceof Object[]) {
+			Object[] values = (Object[]) column;
+			return row -> values[row];
+		}
+		return row -> Array.get(column, row);
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new EOFException("Unexpected end of columnar file");
+		buffer.flip();
+		return buffer;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+}
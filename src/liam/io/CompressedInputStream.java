@@ -0,0 +1,129 @@
+package liam.io;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * This stream reads data written by a {@link CompressedOutputStream},
+ * checking the checksum of every block.
+ *
+ * @author Liam
+ */
+public class CompressedInputStream extends InputStream {
+
+	private final DataInputStream in;
+	private final Codec codec;
+
+	private byte[] compressed = new byte[0];
+	private byte[] block;
+	private int position;
+	private int count;
+	private boolean finished;
+
+	/**
+	 * This constructor will read the header of a compressed stream.
+	 *
+	 * @param in The stream of compressed bytes.
+	 * @throws IOException If the header is missing or invalid.
+	 */
+	public CompressedInputStream(InputStream in) throws IOException {
+		this.in = new DataInputStream(in);
+
+		byte[] magic = new byte[CompressedOutputStream.MAGIC.length];
+		this.in.readFully(magic);
+		if (!Arrays.equals(magic, CompressedOutputStream.MAGIC))
+			throw new IOException("Not a compressed stream");
+
+		int version = this.in.readUnsignedByte();
+		if (version != CompressedOutputStream.VERSION)
+			throw new IOException("Unsupported version: " + version);
+
+		codec = Codec.of(this.in.readUnsignedByte());
+		int blockSize = this.in.readInt();
+		if (blockSize <= 0 || blockSize > CompressedOutputStream.MAX_BLOCK_SIZE)
+			throw new IOException("Invalid block size: " + blockSize);
+		block = new byte[blockSize];
+	}
+
+	/**
+	 * This method will return the codec the stream was written with.
+	 *
+	 * @return The codec.
+	 */
+	public Codec codec() {
+		return codec;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (position == count && !nextBlock())
+			return -1;
+		return block[position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (position == count && !nextBlock())
+			return -1;
+
+		int n = Math.min(len, count - position);
+		System.arraycopy(block, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return count - position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private boolean nextBlock() throws IOException {
+		if (finished)
+			return false;
+
+		try {
+			int length = in.readInt();
+			if (length == 0) {
+				finished = true;
+				return false;
+			}
+
+			int size = in.readInt();
+			int checksum = in.readInt();
+			if (length < 0 || length > block.length || size < 0 || size > length)
+				throw new IOException("Corrupt block header");
+
+			if (size == length) {
+				in.readFully(block, 0, length);
+			} else {
+				if (compressed.length < size)
+					compressed = new byte[Math.max(size, compressed.length * 2)];
+				in.readFully(compressed, 0, size);
+				codec.decompress(compressed, size, block, length);
+			}
+
+			CRC32 crc = new CRC32();
+			crc.update(block, 0, length);
+			if ((int) crc.getValue() != checksum)
+				throw new IOException("Checksum mismatch");
+
+			position = 0;
+			count = length;
+			return true;
+		} catch (EOFException ex) {
+			throw new IOException("Compressed stream ended unexpectedly", ex);
+		}
+	}
+
+}
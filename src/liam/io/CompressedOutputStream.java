@@ -0,0 +1,213 @@
+package liam.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+/**
+ * This stream compresses everything written to it in blocks using a
+ * {@link Codec}. Blocks are compressed in parallel on an {@link Executor}
+ * and written in order. The format is:
+ *
+ * <pre>
+ * header: "LIOZ", version (1 byte), codec id (1 byte), block size (int)
+ * block:  raw length (int), stored length (int), CRC32 of raw bytes (int), data
+ * end:    raw length 0
+ * </pre>
+ *
+ * A block whose compressed form isn't smaller than the raw bytes is
+ * stored uncompressed, with the stored length equal to the raw length.
+ *
+ * @author Liam
+ */
+public class CompressedOutputStream extends OutputStream {
+
+	/**
+	 * The first bytes of a compressed file.
+	 */
+	static final byte[] MAGIC = { 'L', 'I', 'O', 'Z' };
+
+	/**
+	 * The version of the format.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * The default size of an uncompressed block.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+	/**
+	 * The largest size of an uncompressed block. A
+	 * {@link CompressedInputStream} rejects any larger size in a header,
+	 * so a corrupt file can't make it allocate an arbitrary amount.
+	 */
+	public static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+
+	private final DataOutputStream out;
+	private final Codec codec;
+	private final Executor executor;
+
+	/**
+	 * The blocks being compressed, in the order they must be written.
+	 */
+	private final ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+	/**
+	 * The most blocks that can be compressed at once. This bounds the
+	 * memory used when writing faster than blocks can be compressed.
+	 */
+	private final int maxPending;
+
+	private byte[] block;
+	private int count;
+	private boolean closed;
+
+	/**
+	 * This constructor will create a stream which compresses blocks of
+	 * the default size on the common fork-join pool.
+	 *
+	 * @param out The stream to write the compressed bytes to.
+	 * @param codec The codec to compress with.
+	 * @throws IOException If the header can't be written.
+	 */
+	public CompressedOutputStream(OutputStream out, Codec codec) throws IOException {
+		this(out, codec, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * This constructor will create a stream with a given block size
+	 * which compresses blocks on an executor.
+	 *
+	 * @param out The stream to write the compressed bytes to.
+	 * @param codec The codec to compress with.
+	 * @param blockSize The size of an uncompressed block, at most
+	 *            {@link #MAX_BLOCK_SIZE}.
+	 * @param executor The executor to compress blocks on.
+	 * @throws IOException If the header can't be written.
+	 */
+	public CompressedOutputStream(OutputStream out, Codec codec, int blockSize, Executor executor)
+			throws IOException {
+		if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE)
+			throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE + ": " + blockSize);
+
+		this.out = new DataOutputStream(out);
+		this.codec = codec;
+		this.executor = executor;
+		this.maxPending = 2 * Runtime.getRuntime().availableProcessors();
+		this.block = new byte[blockSize];
+
+		this.out.write(MAGIC);
+		this.out.writeByte(VERSION);
+		this.out.writeByte(codec.id);
+		this.out.writeInt(blockSize);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		if (count == block.length)
+			submitBlock();
+		block[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			if (count == block.length)
+				submitBlock();
+
+			int n = Math.min(len, block.length - count);
+			System.arraycopy(b, off, block, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Flushing writes the current (possibly partial) block, so it should
+	 * be used sparingly.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if (count > 0)
+			submitBlock();
+		while (!pending.isEmpty())
+			writeBlock(pending.poll());
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+
+		try {
+			flush();
+			out.writeInt(0);
+			out.flush();
+		} finally {
+			closed = true;
+			out.close();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		byte[] raw = block;
+		int length = count;
+		pending.add(CompletableFuture.supplyAsync(() -> frame(raw, length), executor));
+
+		block = new byte[raw.length];
+		count = 0;
+
+		while (pending.size() >= maxPending || (!pending.isEmpty() && pending.peek().isDone()))
+			writeBlock(pending.poll());
+	}
+
+	private void writeBlock(CompletableFuture<byte[]> future) throws IOException {
+		try {
+			out.write(future.join());
+		} catch (CompletionException ex) {
+			throw new IOException("Failed to compress block", ex.getCause());
+		}
+	}
+
+	/**
+	 * Compresses a block and adds its header.
+	 */
+	private byte[] frame(byte[] raw, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(raw, 0, length);
+
+		byte[] compressed = codec.compress(raw, length);
+		boolean stored = compressed.length >= length;
+		int size = stored ? length : compressed.length;
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(size + 12);
+		try (DataOutputStream frame = new DataOutputStream(bytes)) {
+			frame.writeInt(length);
+			frame.writeInt(size);
+			frame.writeInt((int) crc.getValue());
+			frame.write(stored ? raw : compressed, 0, size);
+		} catch (IOException ex) {
+			throw new AssertionError(ex);
+		}
+		return bytes.toByteArray();
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed)
+			throw new IOException("Stream closed");
+	}
+
+}
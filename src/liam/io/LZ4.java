@@ -0,0 +1,180 @@
+package liam.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pure Java implementation of the LZ4 block format, used by
+ * {@link Codec#LZ4}. It favours speed over compression ratio: it uses a
+ * single hash table lookup per position and no lazy matching.
+ *
+ * @author Liam
+ */
+final class LZ4 {
+
+	private static final int MIN_MATCH = 4;
+	private static final int HASH_LOG = 16;
+	private static final int MAX_OFFSET = 65535;
+
+	/**
+	 * The last 5 bytes are always literals, and the last match must
+	 * start at least 12 bytes before the end.
+	 */
+	private static final int LAST_LITERALS = 5;
+	private static final int MF_LIMIT = 12;
+
+	/**
+	 * Class shouldn't be instantiated.
+	 */
+	private LZ4() {
+	}
+
+	/**
+	 * This method will compress the first length bytes of src.
+	 *
+	 * @param src The bytes to compress.
+	 * @param length The number of bytes to compress.
+	 * @return The compressed bytes.
+	 */
+	static byte[] compress(byte[] src, int length) {
+		byte[] dst = new byte[length + length / 255 + 16];
+		int[] table = new int[1 << HASH_LOG];
+		Arrays.fill(table, -1);
+
+		int op = 0;
+		int anchor = 0;
+		int ip = 0;
+		int limit = length - MF_LIMIT;
+
+		while (ip < limit) {
+			int sequence = readInt(src, ip);
+			int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+			int ref = table[hash];
+			table[hash] = ip;
+
+			if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+				ip++;
+				continue;
+			}
+
+			int matchLength = MIN_MATCH;
+			int matchLimit = length - LAST_LITERALS;
+			while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength])
+				matchLength++;
+
+			op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLength);
+			ip += matchLength;
+			anchor = ip;
+		}
+
+		op = writeLiterals(src, anchor, length - anchor, dst, op);
+		return Arrays.copyOf(dst, op);
+	}
+
+	/**
+	 * This method will decompress a block into dst, which must hold
+	 * exactly rawLength bytes once decompressed.
+	 *
+	 * @param src The compressed bytes.
+	 * @param length The number of compressed bytes.
+	 * @param dst The array to decompress into.
+	 * @param rawLength The number of bytes once decompressed.
+	 * @throws IOException If the block is corrupt.
+	 */
+	static void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException {
+		try {
+			int ip = 0;
+			int op = 0;
+
+			while (ip < length) {
+				int token = src[ip++] & 0xFF;
+
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xFF;
+						literals += b;
+					} while (b == 255);
+				}
+				System.arraycopy(src, ip, dst, op, literals);
+				ip += literals;
+				op += literals;
+
+				if (ip >= length)
+					break;
+
+				int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+				ip += 2;
+				if (offset == 0 || offset > op)
+					throw new IOException("Corrupt LZ4 block");
+
+				int matchLength = token & 0x0F;
+				if (matchLength == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xFF;
+						matchLength += b;
+					} while (b == 255);
+				}
+				matchLength += MIN_MATCH;
+
+				int from = op - offset;
+				if (offset >= matchLength) {
+					System.arraycopy(dst, from, dst, op, matchLength);
+					op += matchLength;
+				} else {
+					for (int i = 0; i < matchLength; i++)
+						dst[op++] = dst[from + i];
+				}
+			}
+
+			if (op != rawLength)
+				throw new IOException("Corrupt LZ4 block");
+		} catch (IndexOutOfBoundsException ex) {
+			throw new IOException("Corrupt LZ4 block", ex);
+		}
+	}
+
+	private static int writeSequence(byte[] src, int from, int literals, byte[] dst, int op, int offset,
+			int matchLength) {
+		int match = matchLength - MIN_MATCH;
+		int token = Math.min(literals, 15) << 4 | Math.min(match, 15);
+		dst[op++] = (byte) token;
+		op = writeLength(dst, op, literals);
+		System.arraycopy(src, from, dst, op, literals);
+		op += literals;
+
+		dst[op++] = (byte) offset;
+		dst[op++] = (byte) (offset >>> 8);
+		return writeLength(dst, op, match);
+	}
+
+	private static int writeLiterals(byte[] src, int from, int literals, byte[] dst, int op) {
+		dst[op++] = (byte) (Math.min(literals, 15) << 4);
+		op = writeLength(dst, op, literals);
+		System.arraycopy(src, from, dst, op, literals);
+		return op + literals;
+	}
+
+	/**
+	 * Lengths of 15 or more continue in extra bytes after the token.
+	 */
+	private static int writeLength(byte[] dst, int op, int length) {
+		if (length < 15)
+			return op;
+
+		length -= 15;
+		while (length >= 255) {
+			dst[op++] = (byte) 255;
+			length -= 255;
+		}
+		dst[op++] = (byte) length;
+		return op;
+	}
+
+	private static int readInt(byte[] b, int i) {
+		return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+	}
+
+}
@@ -0,0 +1,599 @@
+package liam.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * The ObjectArchive class stores many objects in a single file, each
+ * under a String key. Objects are appended to a data region and found
+ * through an index kept at the end of the file. The index holds where
+ * each object's data is, how long it is and its checksum, so reading one
+ * object takes a single positioned read. The file layout is:
+ *
+ * <pre>
+ * header:  "LIOA", version (1 byte)
+ * record:  key length (int), key (UTF-8), data length (int), CRC32 of data (int), data
+ * index:   entry count (int), then per entry: key length (int), key (UTF-8),
+ *          record offset (long), data length (int), CRC32 of data (int)
+ * trailer: index offset (long), "LIOA"
+ * </pre>
+ *
+ * Putting an object over an existing key appends a new record and the
+ * old one becomes garbage until {@link #compact()} is called. The index
+ * is written by {@link #flush()} and {@link #close()}; if the archive
+ * wasn't closed properly the index is rebuilt by scanning the records.
+ * <br><br>
+ *
+ * For example:
+ *
+ * <pre>
+ * {@code
+ * try (ObjectArchive archive = new ObjectArchive(Paths.get("objects.lioa"))) {
+ *     archive.put("config", config);
+ *     Config read = (Config) archive.get("config");
+ * }
+ * }
+ * </pre>
+ *
+ * @author Liam
+ */
+public class ObjectArchive implements Closeable, Iterable<Map.Entry<String, Object>> {
+
+	private static final byte[] MAGIC = { 'L', 'I', 'O', 'A' };
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = MAGIC.length + 1;
+	private static final int TRAILER_SIZE = 8 + MAGIC.length;
+
+	private final Path path;
+	private final boolean memoryMapped;
+
+	private FileChannel channel;
+
+	/**
+	 * Each key's latest record, in the order they were put.
+	 */
+	private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>();
+
+	/**
+	 * The end of the last record, where the next record is written.
+	 */
+	private long dataEnd;
+
+	/**
+	 * Whether the index on disk is out of date.
+	 */
+	private boolean dirty;
+
+	/**
+	 * A read-only mapping of the data region, or null if it hasn't been
+	 * mapped (or has been outgrown) yet.
+	 */
+	private MappedByteBuffer mapped;
+
+	/**
+	 * This constructor will open an archive, creating it if it doesn't
+	 * exist.
+	 *
+	 * @param path The Path of the archive.
+	 * @throws IOException If the file can't be opened or isn't an archive.
+	 */
+	public ObjectArchive(Path path) throws IOException {
+		this(path, false);
+	}
+
+	/**
+	 * This constructor will open an archive, creating it if it doesn't
+	 * exist. If memoryMapped is true, objects are read from a memory
+	 * mapping of the file instead of with positioned reads (while
+	 * the file is smaller than 2GB).
+	 *
+	 * @param path The Path of the archive.
+	 * @param memoryMapped Whether to read through a memory mapping.
+	 * @throws IOException If the file can't be opened or isn't an archive.
+	 */
+	public ObjectArchive(Path path, boolean memoryMapped) throws IOException {
+		this.path = path;
+		this.memoryMapped = memoryMapped;
+		open();
+	}
+
+	/**
+	 * This method will store an object under a key, replacing any object
+	 * already stored under it.
+	 *
+	 * @param key The key to store the object under.
+	 * @param object The object to store.
+	 * @throws IOException If the object can't be serialized or written.
+	 */
+	public synchronized void put(String key, Object object) throws IOException {
+		ensureOpen();
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		byte[] data = ObjectIO.serialize(object);
+
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		ByteBuffer record = ByteBuffer.allocate(12 + keyBytes.length + data.length);
+		record.putInt(keyBytes.length).put(keyBytes);
+		record.putInt(data.length).putInt((int) crc.getValue()).put(data);
+		record.flip();
+
+		// The old index is overwritten by the new record, so it's cut off
+		// first to make sure it can't be read back if the archive isn't
+		// closed properly.
+		if (channel.size() > dataEnd)
+			channel.truncate(dataEnd);
+
+		long offset = dataEnd;
+		writeFully(record, offset);
+		dataEnd += record.capacity();
+
+		index.remove(key);
+		index.put(key, new Entry(offset, offset + 12 + keyBytes.length, data.length, (int) crc.getValue()));
+		dirty = true;
+	}
+
+	/**
+	 * This method will read the object stored under a key.
+	 *
+	 * @param key The key of the object.
+	 * @return The object, or null if there is no object under the key.
+	 * @throws IOException If the object can't be read or deserialized.
+	 */
+	public synchronized Object get(String key) throws IOException {
+		ensureOpen();
+		Entry entry = index.get(key);
+		if (entry == null)
+			return null;
+
+		try (InputStream in = new BufferInputStream(readData(entry))) {
+			return ObjectIO.deserialize(in);
+		} catch (ClassNotFoundException ex) {
+			throw new IOException("Class of object not found: " + key, ex);
+		}
+	}
+
+	/**
+	 * This method will check if an object is stored under a key.
+	 *
+	 * @param key The key to check.
+	 * @return Whether there is an object under the key.
+	 */
+	public synchronized boolean contains(String key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * This method will remove the object stored under a key. Its record
+	 * stays in the file until {@link #compact()} is called.
+	 *
+	 * @param key The key of the object.
+	 * @return Whether there was an object under the key.
+	 */
+	public synchronized boolean remove(String key) {
+		boolean removed = index.remove(key) != null;
+		dirty |= removed;
+		return removed;
+	}
+
+	/**
+	 * This method will return the number of objects in the archive.
+	 *
+	 * @return The number of objects.
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * This method will return the keys in the order their objects were
+	 * last put.
+	 *
+	 * @return A copy of the keys.
+	 */
+	public synchronized Set<String> keys() {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(index.keySet()));
+	}
+
+	/**
+	 * This method will iterate over the objects in the archive. Each
+	 * object is read when the iterator reaches it. An
+	 * {@link UncheckedIOException} is thrown if an object can't
+	 * be read.
+	 */
+	@Override
+	public Iterator<Map.Entry<String, Object>> iterator() {
+		List<String> keys = new ArrayList<>(keys());
+		return new Iterator<Map.Entry<String, Object>>() {
+
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < keys.size();
+			}
+
+			@Override
+			public Map.Entry<String, Object> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				String key = keys.get(next++);
+				try {
+					return new AbstractMap.SimpleImmutableEntry<>(key, get(key));
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			}
+		};
+	}
+
+	/**
+	 * This method will write the index to the file, so the archive can
+	 * be opened again without scanning the records.
+	 *
+	 * @throws IOException If the index can't be written.
+	 */
+	public synchronized void flush() throws IOException {
+		ensureOpen();
+		if (!dirty)
+			return;
+
+		ByteBuffer footer = footer(index, dataEnd);
+		int size = footer.remaining();
+		writeFully(footer, dataEnd);
+		channel.truncate(dataEnd + size);
+		channel.force(false);
+		dirty = false;
+	}
+
+	/**
+	 * This method will rewrite the archive without the records of
+	 * replaced or removed objects. The index is written with it, so the
+	 * archive doesn't need to be scanned when it is next opened.
+	 *
+	 * @throws IOException If the archive can't be rewritten.
+	 */
+	public synchronized void compact() throws IOException {
+		ensureOpen();
+		Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+		LinkedHashMap<String, Entry> compacted = new LinkedHashMap<>();
+		long end = HEADER_SIZE;
+		try {
+			try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put((byte) VERSION);
+				header.flip();
+				while (header.hasRemaining())
+					out.write(header);
+
+				for (Map.Entry<String, Entry> record : index.entrySet()) {
+					Entry entry = record.getValue();
+					long length = entry.dataOffset + entry.dataSize - entry.offset;
+					long copied = 0;
+					while (copied < length)
+						copied += channel.transferTo(entry.offset + copied, length - copied, out);
+
+					compacted.put(record.getKey(),
+							new Entry(end, end + entry.dataOffset - entry.offset, entry.dataSize, entry.checksum));
+					end += length;
+				}
+
+				ByteBuffer footer = footer(compacted, end);
+				while (footer.hasRemaining())
+					out.write(footer);
+				out.force(false);
+			}
+
+			// The file can't be replaced while it is open on some platforms
+			channel.close();
+			mapped = null;
+			try {
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException | RuntimeException ex) {
+				// The archive is unchanged, so it is reopened as it was
+				try {
+					openChannel();
+				} catch (IOException reopen) {
+					channel = null;
+					ex.addSuppressed(reopen);
+				}
+				throw ex;
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+
+		openChannel();
+		index.clear();
+		index.putAll(compacted);
+		dataEnd = end;
+		dirty = false;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel == null)
+			return;
+
+		try {
+			flush();
+		} finally {
+			channel.close();
+			channel = null;
+			mapped = null;
+		}
+	}
+
+	/**
+	 * Returns the index of some records and the trailer, to be written
+	 * where the records end.
+	 */
+	private static ByteBuffer footer(Map<String, Entry> records, long end) {
+		List<byte[]> keys = new ArrayList<>(records.size());
+		int size = 4 + TRAILER_SIZE;
+		for (String key : records.keySet()) {
+			byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+			keys.add(bytes);
+			size += 20 + bytes.length;
+		}
+
+		ByteBuffer footer = ByteBuffer.allocate(size);
+		footer.putInt(records.size());
+		int i = 0;
+		for (Entry entry : records.values()) {
+			byte[] key = keys.get(i++);
+			footer.putInt(key.length).put(key).putLong(entry.offset).putInt(entry.dataSize).putInt(entry.checksum);
+		}
+		footer.putLong(end).put(MAGIC);
+		footer.flip();
+		return footer;
+	}
+
+	private void open() throws IOException {
+		openChannel();
+
+		if (channel.size() == 0) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put((byte) VERSION);
+			header.flip();
+			writeFully(header, 0);
+			dataEnd = HEADER_SIZE;
+			dirty = true;
+			return;
+		}
+
+		ByteBuffer header = readFully(0, HEADER_SIZE);
+		byte[] magic = new byte[MAGIC.length];
+		header.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			channel.close();
+			throw new IOException("Not an object archive: " + path);
+		}
+		if (header.get() != VERSION) {
+			channel.close();
+			throw new IOException("Unsupported archive version: " + path);
+		}
+
+		if (!readIndex())
+			scanRecords();
+	}
+
+	private void openChannel() throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Reads the index from the end of the file, returning false if
+	 * there is no valid index.
+	 */
+	private boolean readIndex() throws IOException {
+		long size = channel.size();
+		if (size < HEADER_SIZE + 4 + TRAILER_SIZE)
+			return false;
+
+		ByteBuffer trailer = readFully(size - TRAILER_SIZE, TRAILER_SIZE);
+		long indexOffset = trailer.getLong();
+		byte[] magic = new byte[MAGIC.length];
+		trailer.get(magic);
+		if (!Arrays.equals(magic, MAGIC) || indexOffset < HEADER_SIZE
+				|| indexOffset > size - TRAILER_SIZE - 4)
+			return false;
+
+		long footerSize = size - TRAILER_SIZE - indexOffset;
+		if (footerSize > Integer.MAX_VALUE)
+			return false;
+
+		ByteBuffer footer = readFully(indexOffset, (int) footerSize);
+		try {
+			int count = footer.getInt();
+			for (int i = 0; i < count; i++) {
+				int keySize = footer.getInt();
+				if (keySize < 0 || keySize > footer.remaining())
+					throw new BufferUnderflowException();
+
+				byte[] key = new byte[keySize];
+				footer.get(key);
+				long offset = footer.getLong();
+				int dataSize = footer.getInt();
+				int checksum = footer.getInt();
+				long dataOffset = offset + 12 + keySize;
+				if (offset < HEADER_SIZE || dataSize < 0 || dataOffset + dataSize > indexOffset)
+					throw new BufferUnderflowException();
+				index.put(new String(key, StandardCharsets.UTF_8), new Entry(offset, dataOffset, dataSize, checksum));
+			}
+		} catch (BufferUnderflowException ex) {
+			index.clear();
+			return false;
+		}
+		dataEnd = indexOffset;
+		return true;
+	}
+
+	/**
+	 * Rebuilds the index by reading every record, stopping at the first
+	 * incomplete or corrupt one.
+	 */
+	private void scanRecords() throws IOException {
+		long size = channel.size();
+		long offset = HEADER_SIZE;
+
+		while (offset + 12 <= size) {
+			try {
+				ByteBuffer keyLength = readFully(offset, 4);
+				int keySize = keyLength.getInt();
+				if (keySize < 0 || offset + 12 + keySize > size)
+					break;
+
+				ByteBuffer key = readFully(offset + 4, keySize + 8);
+				byte[] keyBytes = new byte[keySize];
+				key.get(keyBytes);
+				int dataSize = key.getInt();
+				int checksum = key.getInt();
+				long end = offset + 12 + keySize + dataSize;
+				if (dataSize < 0 || end > size)
+					break;
+
+				CRC32 crc = new CRC32();
+				crc.update(readFully(offset + 12 + keySize, dataSize));
+				if ((int) crc.getValue() != checksum)
+					break;
+
+				String name = new String(keyBytes, StandardCharsets.UTF_8);
+				index.remove(name);
+				index.put(name, new Entry(offset, offset + 12 + keySize, dataSize, checksum));
+				offset = end;
+			} catch (IOException ex) {
+				break;
+			}
+		}
+
+		dataEnd = offset;
+		dirty = true;
+	}
+
+	/**
+	 * Reads the data of a record in one positioned read (or slices it out
+	 * of the mapping) and checks its checksum.
+	 */
+	private ByteBuffer readData(Entry entry) throws IOException {
+		if (entry.dataSize < 0 || entry.dataOffset + entry.dataSize > dataEnd)
+			throw new StreamCorruptedException("Invalid data length in " + path + " at offset " + entry.offset);
+
+		// A single mapping can't be larger than 2GB
+		ByteBuffer data = memoryMapped && dataEnd <= Integer.MAX_VALUE ? mapped(entry.dataOffset, entry.dataSize)
+				: readFully(entry.dataOffset, entry.dataSize);
+
+		CRC32 crc = new CRC32();
+		crc.update(data.duplicate());
+		if ((int) crc.getValue() != entry.checksum)
+			throw new IOException("Checksum mismatch in " + path + " at offset " + entry.offset);
+		return data;
+	}
+
+	/**
+	 * Returns a view of part of the mapped data region, remapping it if
+	 * it has grown since it was mapped.
+	 */
+	private ByteBuffer mapped(long offset, int length) throws IOException {
+		if (mapped == null || offset + length > mapped.capacity())
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataEnd);
+
+		ByteBuffer view = mapped.duplicate();
+		view.position((int) offset).limit((int) offset + length);
+		return view.slice();
+	}
+
+	private ByteBuffer readFully(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new EOFException("Unexpected end of archive: " + path);
+		buffer.flip();
+		return buffer;
+	}
+
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer, position + buffer.position());
+	}
+
+	private void ensureOpen() throws IOException {
+		if (channel == null)
+			throw new IOException("Archive closed: " + path);
+	}
+
+	/**
+	 * Reads a record's data straight out of its buffer.
+	 */
+	private static final class BufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!buffer.hasRemaining())
+				return -1;
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+	/**
+	 * Where a key's latest record is.
+	 */
+	private static final class Entry {
+
+		private final long offset;
+		private final long dataOffset;
+		private final int dataSize;
+		private final int checksum;
+
+		private Entry(long offset, long dataOffset, int dataSize, int checksum) {
+			this.offset = offset;
+			this.dataOffset = dataOffset;
+			this.dataSize = dataSize;
+			this.checksum = checksum;
+		}
+	}
+
+}
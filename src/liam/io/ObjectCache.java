@@ -0,0 +1,315 @@
+package liam.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The ObjectCache class keeps objects read with {@link ObjectIO} in
+ * memory so that reading the same file again doesn't deserialize it
+ * again. A cached object is only returned while the file's modification
+ * time and size are unchanged, so edited files are read again.<br><br>
+ *
+ * The cache holds at most a given number of objects, evicting the least
+ * recently used. Values can be held through soft references so the
+ * garbage collector can reclaim them when memory is low. When several
+ * threads read the same uncached file at once, it is only read once and
+ * the other threads wait for the result.<br><br>
+ *
+ * Objects returned by the cache are shared, so they shouldn't be
+ * modified by the caller.
+ *
+ * @author Liam
+ */
+public class ObjectCache implements Closeable {
+
+	/**
+	 * A cached object and the state of its file when it was read.
+	 */
+	private static final class Entry {
+
+		private final long modified;
+		private final long size;
+		private final Object value;
+		private final SoftReference<Object> softValue;
+
+		private Entry(long modified, long size, Object value, boolean soft) {
+			this.modified = modified;
+			this.size = size;
+			this.value = soft ? null : value;
+			this.softValue = soft ? new SoftReference<>(value) : null;
+		}
+
+		private Object value() {
+			return softValue == null ? value : softValue.get();
+		}
+	}
+
+	private final int maxEntries;
+	private final boolean softValues;
+
+	/**
+	 * The cached objects in least to most recently used order. Access
+	 * is synchronized on the map itself.
+	 */
+	private final LinkedHashMap<Path, Entry> entries;
+
+	/**
+	 * The files currently being read, so concurrent readers of the same
+	 * file can wait for one read instead of each doing their own.
+	 */
+	private final ConcurrentHashMap<Path, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder loadFailures = new LongAdder();
+
+	private WatchService watcher;
+	private Thread watchThread;
+
+	/**
+	 * This constructor will create a cache which holds up to a number
+	 * of objects.
+	 *
+	 * @param maxEntries The most objects to hold.
+	 */
+	public ObjectCache(int maxEntries) {
+		this(maxEntries, false);
+	}
+
+	/**
+	 * This constructor will create a cache which holds up to a number
+	 * of objects, optionally through soft references.
+	 *
+	 * @param maxEntries The most objects to hold.
+	 * @param softValues Whether to hold objects through soft references.
+	 */
+	public ObjectCache(int maxEntries, boolean softValues) {
+		if (maxEntries <= 0)
+			throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+
+		this.maxEntries = maxEntries;
+		this.softValues = softValues;
+		this.entries = new LinkedHashMap<Path, Entry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+				if (size() <= ObjectCache.this.maxEntries)
+					return false;
+				evictions.increment();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * This method will return the object in a file, reading it only if
+	 * it isn't cached or the file has changed since it was cached.
+	 *
+	 * @param path The Path to read.
+	 * @return The object read, or null if it couldn't be read.
+	 * @throws java.util.concurrent.CompletionException If another thread
+	 * reading the same file failed with an Error.
+	 */
+	public Object get(Path path) {
+		Path key = path.toAbsolutePath().normalize();
+
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(key, BasicFileAttributes.class);
+		} catch (IOException ex) {
+			invalidate(key);
+			loadFailures.increment();
+			ex.printStackTrace();
+			return null;
+		}
+		long modified = attributes.lastModifiedTime().toMillis();
+		long size = attributes.size();
+
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry != null && entry.modified == modified && entry.size == size) {
+				Object value = entry.value();
+				if (value != null) {
+					hits.increment();
+					return value;
+				}
+			}
+		}
+		misses.increment();
+
+		CompletableFuture<Object> load = new CompletableFuture<>();
+		CompletableFuture<Object> existing = loading.putIfAbsent(key, load);
+		if (existing != null)
+			return existing.join();
+
+		try {
+			Object value = ObjectIO.readObject(key);
+			synchronized (entries) {
+				entries.put(key, new Entry(modified, size, value, softValues));
+			}
+			load.complete(value);
+			return value;
+		} catch (IOException | ClassNotFoundException | RuntimeException ex) {
+			loadFailures.increment();
+			load.complete(null);
+			ex.printStackTrace();
+			return null;
+		} catch (Error ex) {
+			// Threads waiting for the read get the error rather than waiting forever
+			loadFailures.increment();
+			load.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			loading.remove(key, load);
+		}
+	}
+
+	/**
+	 * This method will remove a file's object from the cache.
+	 *
+	 * @param path The Path of the file.
+	 */
+	public void invalidate(Path path) {
+		Path key = path.toAbsolutePath().normalize();
+		synchronized (entries) {
+			entries.remove(key);
+		}
+	}
+
+	/**
+	 * This method will remove every object from the cache.
+	 */
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * This method will return the number of objects in the cache.
+	 *
+	 * @return The number of objects.
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return The number of reads answered from the cache.
+	 */
+	public long hitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return The number of reads which weren't in the cache.
+	 */
+	public long missCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return The fraction of reads answered from the cache.
+	 */
+	public double hitRate() {
+		long hits = hitCount();
+		long total = hits + missCount();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * @return The number of objects evicted to make room for others.
+	 */
+	public long evictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return The number of files which couldn't be read.
+	 */
+	public long loadFailureCount() {
+		return loadFailures.sum();
+	}
+
+	/**
+	 * This method will watch a directory and remove objects from the
+	 * cache as soon as their files are changed or deleted, rather than
+	 * when they are next read. The directory is watched on a daemon
+	 * thread until the cache is closed.
+	 *
+	 * @param directory The directory to watch.
+	 * @throws IOException If the directory can't be watched.
+	 */
+	public synchronized void watch(Path directory) throws IOException {
+		if (watcher == null) {
+			WatchService service = FileSystems.getDefault().newWatchService();
+			watcher = service;
+			watchThread = new Thread(() -> processEvents(service), "ObjectCache-watcher");
+			watchThread.setDaemon(true);
+			watchThread.start();
+		}
+
+		directory.toAbsolutePath().normalize().register(watcher, StandardWatchEventKinds.ENTRY_MODIFY,
+				StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_CREATE);
+	}
+
+	/**
+	 * Invalidates objects as their files change. The service is passed in
+	 * so the thread never sees the one a later call to watch creates.
+	 */
+	private void processEvents(WatchService service) {
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				Path directory = (Path) key.watchable();
+
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+						invalidateAll();
+					else
+						invalidate(directory.resolve((Path) event.context()));
+				}
+				key.reset();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException ex) {
+			// The cache was closed
+		}
+	}
+
+	/**
+	 * This method will stop watching directories. The cache can still
+	 * be used afterwards.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (watcher != null) {
+			watcher.close();
+			watchThread.interrupt();
+			watcher = null;
+			watchThread = null;
+		}
+	}
+
+}
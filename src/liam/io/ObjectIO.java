@@ -1,36 +1,88 @@
 package liam.io;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import liam.collections.ChangeLog;
+import liam.collections.Tracked;
+import liam.util.Metrics;
+import liam.util.OperationMetrics;
 
 /**
  * The ObjectIO class provides functions to
- * easily read and write object files.
+ * easily read and write object files.<br><br>
+ * 
+ * Reads and writes are timed, with the size of
+ * the file, when {@link Metrics} are enabled.
  * 
  * @author Liam
  */
 public class ObjectIO {
 
+	/**
+	 * The first bytes of a file written by {@link #writeDelta(Tracked, Path)}.
+	 */
+	static final byte[] DELTA_MAGIC = { 'L', 'I', 'O', 'D' };
+
+	/**
+	 * The number of threads used by the bulk methods when no executor
+	 * is given. Reading and writing files mostly waits on the disk, so
+	 * this is more than the number of cores.
+	 */
+	private static final int BULK_THREADS = 2 * Runtime.getRuntime().availableProcessors();
+
+	private static final OperationMetrics READ = Metrics.operation("ObjectIO.read");
+	private static final OperationMetrics WRITE = Metrics.operation("ObjectIO.write");
+
+	/**
+	 * A read or write of a single file in a bulk operation.
+	 */
+	private interface FileTask {
+		Object run(Path path) throws Exception;
+	}
+
 	/**
 	 * This method will read an object file in a
-	 * location and return the object.
+	 * location and return the object. Files written
+	 * with a {@link Codec} or by {@link #writeDelta(Tracked, Path)}
+	 * are detected and read as well.
 	 * 
 	 * @param path The File to read.
 	 * @return The object read.
 	 */
 	public static Object read(File path) {
-		try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(path))) {
-			return ois.readObject();
-		} catch (IOException | ClassNotFoundException ex) {
-			ex.printStackTrace();
-			return null;
-		}
+		return read(path.toPath());
 	}
 
 	/**
@@ -47,20 +99,108 @@ public class ObjectIO {
 	/**
 	 * This method will read an object file in a
 	 * location and return the object, using a Path
-	 * object.
+	 * object. Files written with a {@link Codec} or by
+	 * {@link #writeDelta(Tracked, Path)} are detected
+	 * and read as well.
 	 * 
 	 * @param path The Path to read.
 	 * @return The object read.
 	 */
 	public static Object read(Path path) {
-		try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(path.toFile()))) {
-			return ois.readObject();
+		try {
+			return readObject(path);
+		} catch (IOException | ClassNotFoundException ex) {
+			ex.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * This method will read an object file written
+	 * with a {@link StreamCipher}, decrypting it as
+	 * it is read. Compressed files are detected.
+	 * 
+	 * @param path The File to read.
+	 * @param cipher The cipher the file was written with.
+	 * @return The object read.
+	 */
+	public static Object read(File path, StreamCipher cipher) {
+		return read(path.toPath(), cipher);
+	}
+
+	/**
+	 * This method will read an object file written
+	 * with a {@link StreamCipher}, decrypting it as
+	 * it is read, using a Path object. Compressed
+	 * files are detected.
+	 * 
+	 * @param path The Path to read.
+	 * @param cipher The cipher the file was written with.
+	 * @return The object read.
+	 */
+	public static Object read(Path path, StreamCipher cipher) {
+		OperationMetrics.Timer timer = READ.start();
+		try (InputStream in = cipher.decrypting(new BufferedInputStream(new FileInputStream(path.toFile())))) {
+			Object object = readObject(new BufferedInputStream(in));
+			if (timer != null)
+				timer.stop(1, path.toFile().length());
+			return object;
 		} catch (IOException | ClassNotFoundException ex) {
 			ex.printStackTrace();
 			return null;
 		}
 	}
 
+	/**
+	 * Reads an object from a stream which may be compressed.
+	 */
+	private static Object readObject(BufferedInputStream in) throws IOException, ClassNotFoundException {
+		byte[] magic = new byte[CompressedOutputStream.MAGIC.length];
+		in.mark(magic.length);
+		int n = in.readNBytes(magic, 0, magic.length);
+		in.reset();
+
+		InputStream source = in;
+		if (n == magic.length && Arrays.equals(magic, CompressedOutputStream.MAGIC))
+			source = new CompressedInputStream(in);
+
+		ObjectInputStream ois = new ObjectInputStream(source);
+		return ois.readObject();
+	}
+
+	/**
+	 * Reads an object file of any format, throwing any errors.
+	 */
+	static Object readObject(Path path) throws IOException, ClassNotFoundException {
+		OperationMetrics.Timer timer = READ.start();
+		Object object = readFile(path);
+		if (timer != null)
+			timer.stop(1, path.toFile().length());
+		return object;
+	}
+
+	private static Object readFile(Path path) throws IOException, ClassNotFoundException {
+		BufferedInputStream in = new BufferedInputStream(new FileInputStream(path.toFile()));
+		try {
+			byte[] magic = new byte[4];
+			in.mark(magic.length);
+			int n = in.readNBytes(magic, 0, magic.length);
+			in.reset();
+
+			if (n == magic.length && Arrays.equals(magic, DELTA_MAGIC)) {
+				in.close();
+				Object object = readDelta(path);
+				if (object == null)
+					throw new IOException("Failed to read delta file: " + path);
+				return object;
+			}
+
+			return readObject(in);
+		} finally {
+			in.close();
+		}
+	}
+
 	/**
 	 * This method will write an object to a
 	 * location.
@@ -74,11 +214,15 @@ public class ObjectIO {
 			return;
 		}
 
+		OperationMetrics.Timer timer = WRITE.start();
 		try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(path))) {
 			oos.writeObject(object);
 		} catch (IOException ex) {
 			ex.printStackTrace();
+			return;
 		}
+		if (timer != null)
+			timer.stop(1, path.length());
 	}
 
 	/**
@@ -105,11 +249,465 @@ public class ObjectIO {
 			return;
 		}
 
+		OperationMetrics.Timer timer = WRITE.start();
 		try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(path.toFile()))) {
 			oos.writeObject(object);
 		} catch (IOException ex) {
 			ex.printStackTrace();
+			return;
+		}
+		if (timer != null)
+			timer.stop(1, path.toFile().length());
+	}
+
+	/**
+	 * This method will write an object to a
+	 * location, compressed with a {@link Codec}.
+	 * The file can be read with any of the read
+	 * methods.
+	 * 
+	 * @param object The object to be written.
+	 * @param path The File to be written.
+	 * @param codec The codec to compress with.
+	 */
+	public static void write(Object object, File path, Codec codec) {
+		write(object, path.toPath(), codec);
+	}
+
+	/**
+	 * This method overloads the write(Object, File, Codec)
+	 * method, with a String param for the path.
+	 * 
+	 * @param object The object to be written.
+	 * @param path The path of the file to be written.
+	 * @param codec The codec to compress with.
+	 */
+	public static void write(Object object, String path, Codec codec) {
+		write(object, new File(path), codec);
+	}
+
+	/**
+	 * This method will write an object to a
+	 * location, compressed with a {@link Codec},
+	 * using a Path object. Blocks are compressed
+	 * in parallel.
+	 * 
+	 * @param object The object to be written.
+	 * @param path The Path to be written.
+	 * @param codec The codec to compress with.
+	 */
+	public static void write(Object object, Path path, Codec codec) {
+		if (!(object instanceof Serializable)) {
+			System.err.println("Error: object is not serializable.");
+			return;
+		}
+
+		OperationMetrics.Timer timer = WRITE.start();
+		try (FileOutputStream file = new FileOutputStream(path.toFile());
+				ObjectOutputStream oos = new ObjectOutputStream(new CompressedOutputStream(file, codec))) {
+			oos.writeObject(object);
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			return;
+		}
+		if (timer != null)
+			timer.stop(1, path.toFile().length());
+	}
+
+	/**
+	 * This method will write an object to a
+	 * location, encrypted with a {@link StreamCipher}
+	 * and optionally compressed, in a single pass.
+	 * The file can be read with
+	 * {@link #read(File, StreamCipher)}.
+	 * 
+	 * @param object The object to be written.
+	 * @param path The File to be written.
+	 * @param codec The codec to compress with, or null
+	 * not to compress.
+	 * @param cipher The cipher to encrypt with.
+	 */
+	public static void write(Object object, File path, Codec codec, StreamCipher cipher) {
+		write(object, path.toPath(), codec, cipher);
+	}
+
+	/**
+	 * This method will write an object to a
+	 * location, encrypted with a {@link StreamCipher}
+	 * and optionally compressed, in a single pass,
+	 * using a Path object. The data is compressed
+	 * before it is encrypted. The file can be read
+	 * with {@link #read(Path, StreamCipher)}.
+	 * 
+	 * @param object The object to be written.
+	 * @param path The Path to be written.
+	 * @param codec The codec to compress with, or null
+	 * not to compress.
+	 * @param cipher The cipher to encrypt with.
+	 */
+	public static void write(Object object, Path path, Codec codec, StreamCipher cipher) {
+		if (!(object instanceof Serializable)) {
+			System.err.println("Error: object is not serializable.");
+			return;
+		}
+
+		OperationMetrics.Timer timer = WRITE.start();
+		// Closing the object stream closes the file, which is also closed
+		// on its own if wrapping it fails
+		try (FileOutputStream file = new FileOutputStream(path.toFile())) {
+			OutputStream out = cipher.encrypting(new BufferedOutputStream(file));
+			if (codec != null)
+				out = new CompressedOutputStream(out, codec);
+			else
+				out = new BufferedOutputStream(out);
+
+			try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+				oos.writeObject(object);
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			return;
+		}
+		if (timer != null)
+			timer.stop(1, path.toFile().length());
+	}
+
+	/**
+	 * This method will save a {@link Tracked} collection, writing only
+	 * the changes made since the last save when possible. The first save
+	 * writes the whole collection; later saves append the collection's
+	 * {@link ChangeLog} to the file. The whole collection is written
+	 * again if the file is missing, if the collection was last saved to
+	 * a different file or the file has been written since, if the changes
+	 * replace the whole collection (e.g. after a shuffle), or if the
+	 * appended changes have grown larger than the full copy.<br><br>
+	 * 
+	 * Each collection should be saved to its own file, and the file should
+	 * be read with {@link #readDelta(Path)}. Change tracking is started on
+	 * the collection if it wasn't already.
+	 * 
+	 * @param collection The collection to be written.
+	 * @param path The Path to be written.
+	 */
+	public static void writeDelta(Tracked<?> collection, Path path) {
+		if (!(collection instanceof Serializable)) {
+			System.err.println("Error: object is not serializable.");
+			return;
+		}
+
+		ChangeLog<?> changes = collection.changes();
+		if (changes == null) {
+			collection.trackChanges();
+			changes = collection.changes();
+		}
+
+		String file = path.toAbsolutePath().normalize().toString();
+		try {
+			if (!Files.exists(path) || !changes.isSavedTo(file, Files.size(path)) || changes.hasReset()
+					|| tooManyChanges(collection, changes, path)) {
+				try (DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Files.newOutputStream(path)))) {
+					out.write(DELTA_MAGIC);
+					writeSegment(out, serialize(collection));
+				}
+			} else if (!changes.isEmpty()) {
+				try (DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(new FileOutputStream(path.toFile(), true)))) {
+					writeSegment(out, serialize(changes));
+				}
+			}
+			collection.markSaved();
+			changes.markSavedTo(file, Files.size(path));
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * This method will read a collection written by
+	 * {@link #writeDelta(Tracked, Path)}, replaying the saved changes
+	 * on top of the last full copy. Change tracking is started on the
+	 * collection read, so it can be saved again to the same file.
+	 * 
+	 * @param path The Path to read.
+	 * @return The collection read.
+	 */
+	public static Object readDelta(Path path) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			byte[] magic = new byte[DELTA_MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, DELTA_MAGIC))
+				throw new IOException("Not a delta file: " + path);
+
+			long size = Files.size(path);
+			long remaining = size - DELTA_MAGIC.length;
+			byte[] segment = readSegment(in, remaining);
+			if (segment == null)
+				throw new EOFException("Missing collection in delta file: " + path);
+			remaining -= 4 + segment.length;
+
+			Tracked<?> collection = (Tracked<?>) deserialize(segment);
+			while ((segment = readSegment(in, remaining)) != null) {
+				remaining -= 4 + segment.length;
+				replay(collection, (ChangeLog<?>) deserialize(segment));
+			}
+
+			collection.trackChanges();
+			collection.markSaved();
+			// A segment cut short is left out, so the next save rewrites the file
+			collection.changes().markSavedTo(path.toAbsolutePath().normalize().toString(), size - remaining);
+			return collection;
+		} catch (IOException | ClassNotFoundException | ClassCastException ex) {
+			ex.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Checks whether the changes already appended to the file, plus the
+	 * new ones, are bigger than a full copy of the collection.
+	 */
+	private static boolean tooManyChanges(Tracked<?> collection, ChangeLog<?> changes, Path path)
+			throws IOException {
+		if (collection instanceof Collection && changes.size() > ((Collection<?>) collection).size())
+			return true;
+
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+			if (file.length() < DELTA_MAGIC.length + 4)
+				return true;
+
+			file.seek(DELTA_MAGIC.length);
+			long full = file.readInt();
+			long appended = file.length() - DELTA_MAGIC.length - 4 - full;
+			return appended > full;
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void replay(Tracked collection, ChangeLog changes) {
+		collection.replay(changes);
+	}
+
+	private static void writeSegment(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a length-prefixed segment, or returns null at the end of the
+	 * file. A segment cut short (e.g. by a crash while appending) is
+	 * treated as the end of the file. The length is checked against what
+	 * is left of the file before anything is allocated.
+	 */
+	private static byte[] readSegment(DataInputStream in, long remaining) throws IOException {
+		try {
+			int length = in.readInt();
+			if (length < 0)
+				throw new StreamCorruptedException("Invalid segment length: " + length);
+			if (length > remaining - 4)
+				return null;
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return bytes;
+		} catch (EOFException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Serializes an object to a byte array.
+	 */
+	static byte[] serialize(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+			oos.writeObject(object);
 		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Deserializes an object from a byte array.
+	 */
+	static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		return deserialize(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Deserializes an object from a stream, closing it.
+	 */
+	static Object deserialize(InputStream in) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream ois = new ObjectInputStream(in)) {
+			return ois.readObject();
+		}
+	}
+
+	/**
+	 * This method will read many object files in parallel. Unlike
+	 * {@link #read(Path)}, a file which can't be read doesn't print a
+	 * stack trace; its exception is reported in the result instead.
+	 * 
+	 * @param paths The Paths to read.
+	 * @return The objects read and the errors.
+	 */
+	public static BulkResult readAll(Collection<Path> paths) {
+		ExecutorService executor = newBulkExecutor();
+		try {
+			return readAll(paths, executor, 2 * BULK_THREADS);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * This method will read many object files in parallel on an
+	 * executor, for example one which runs each task on a virtual
+	 * thread. At most maxInFlight files are read at once.
+	 * 
+	 * @param paths The Paths to read.
+	 * @param executor The executor to read the files on.
+	 * @param maxInFlight The most files to read at once.
+	 * @return The objects read and the errors.
+	 */
+	public static BulkResult readAll(Collection<Path> paths, ExecutorService executor, int maxInFlight) {
+		return runAll(paths, executor, maxInFlight, ObjectIO::readObject);
+	}
+
+	/**
+	 * This method will read every file in a directory in parallel.
+	 * Subdirectories are not read.
+	 * 
+	 * @param directory The directory to read.
+	 * @return The objects read and the errors.
+	 */
+	public static BulkResult readDirectory(Path directory) {
+		List<Path> paths = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+			for (Path file : files)
+				paths.add(file);
+		} catch (IOException ex) {
+			Map<Path, Throwable> errors = new LinkedHashMap<>();
+			errors.put(directory, ex);
+			return new BulkResult(new LinkedHashMap<>(), errors);
+		}
+		return readAll(paths);
+	}
+
+	/**
+	 * This method will write many objects to their files in parallel.
+	 * A file which can't be written doesn't print a stack trace; its
+	 * exception is reported in the result instead.
+	 * 
+	 * @param objects The objects to write by Path.
+	 * @return The objects written and the errors.
+	 */
+	public static BulkResult writeAll(Map<Path, ?> objects) {
+		ExecutorService executor = newBulkExecutor();
+		try {
+			return writeAll(objects, executor, 2 * BULK_THREADS);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * This method will write many objects to their files in parallel on
+	 * an executor. At most maxInFlight files are written at once.
+	 * 
+	 * @param objects The objects to write by Path.
+	 * @param executor The executor to write the files on.
+	 * @param maxInFlight The most files to write at once.
+	 * @return The objects written and the errors.
+	 */
+	public static BulkResult writeAll(Map<Path, ?> objects, ExecutorService executor, int maxInFlight) {
+		return runAll(objects.keySet(), executor, maxInFlight, path -> {
+			Object object = objects.get(path);
+			writeObject(object, path);
+			return object;
+		});
+	}
+
+	/**
+	 * Writes an object file, throwing any errors.
+	 */
+	static void writeObject(Object object, Path path) throws IOException {
+		if (!(object instanceof Serializable))
+			throw new NotSerializableException(object == null ? "null" : object.getClass().getName());
+
+		OperationMetrics.Timer timer = WRITE.start();
+		try (ObjectOutputStream oos = new ObjectOutputStream(
+				new BufferedOutputStream(new FileOutputStream(path.toFile())))) {
+			oos.writeObject(object);
+		}
+		if (timer != null)
+			timer.stop(1, path.toFile().length());
+	}
+
+	/**
+	 * Runs a task for each file on an executor, with at most maxInFlight
+	 * tasks submitted at once, and collects the results in the order the
+	 * files were given.
+	 */
+	private static BulkResult runAll(Collection<Path> paths, ExecutorService executor, int maxInFlight,
+			FileTask task) {
+		if (maxInFlight <= 0)
+			throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+
+		List<Path> files = new ArrayList<>(paths);
+		Object[] results = new Object[files.size()];
+		Throwable[] errors = new Throwable[files.size()];
+		// Set after a result or error is stored, so it's visible to this thread
+		AtomicIntegerArray done = new AtomicIntegerArray(files.size());
+		Semaphore inFlight = new Semaphore(maxInFlight);
+
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				int index = i;
+				inFlight.acquire();
+				try {
+					executor.execute(() -> {
+						try {
+							results[index] = task.run(files.get(index));
+						} catch (Throwable ex) {
+							// Errors from deserializing (e.g. ExceptionInInitializerError)
+							// fail the file rather than leaving it as a null result
+							errors[index] = ex;
+						} finally {
+							done.set(index, 1);
+							inFlight.release();
+						}
+					});
+				} catch (RuntimeException ex) {
+					errors[index] = ex;
+					done.set(index, 1);
+					inFlight.release();
+				}
+			}
+			// Wait for the tasks still running
+			inFlight.acquire(maxInFlight);
+			inFlight.release(maxInFlight);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		Map<Path, Object> values = new LinkedHashMap<>();
+		Map<Path, Throwable> failures = new LinkedHashMap<>();
+		for (int i = 0; i < files.size(); i++) {
+			if (done.get(i) == 0)
+				failures.put(files.get(i), new InterruptedIOException("Interrupted before finishing"));
+			else if (errors[i] != null)
+				failures.put(files.get(i), errors[i]);
+			else
+				values.put(files.get(i), results[i]);
+		}
+		return new BulkResult(values, failures);
+	}
+
+	private static ExecutorService newBulkExecutor() {
+		return Executors.newFixedThreadPool(BULK_THREADS, task -> {
+			Thread thread = new Thread(task, "ObjectIO-bulk");
+			thread.setDaemon(true);
+			return thread;
+		});
 	}
 
 }
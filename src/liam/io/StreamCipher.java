@@ -0,0 +1,84 @@
+package liam.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import liam.util.AesGcmEncryptor;
+import liam.util.Encryptor;
+import liam.util.EncryptorInputStream;
+import liam.util.EncryptorOutputStream;
+
+/**
+ * This interface encrypts and decrypts streams, so that {@link ObjectIO}
+ * can write and read encrypted object files in a single pass.
+ *
+ * @author Liam
+ */
+public interface StreamCipher {
+
+	/**
+	 * This method will create a stream which encrypts everything written
+	 * to it. Closing it must close the underlying stream.
+	 *
+	 * @param out The stream to write encrypted data to.
+	 * @return The encrypting stream.
+	 * @throws IOException If the stream can't be created.
+	 */
+	OutputStream encrypting(OutputStream out) throws IOException;
+
+	/**
+	 * This method will create a stream which decrypts the data read from
+	 * another stream. Closing it must close the underlying stream.
+	 *
+	 * @param in The stream of encrypted data.
+	 * @return The decrypting stream.
+	 * @throws IOException If the stream can't be created.
+	 */
+	InputStream decrypting(InputStream in) throws IOException;
+
+	/**
+	 * This method will return a cipher using {@link liam.util.Encryptor}'s
+	 * scheme. It only hides data from casual reading. Files are written in
+	 * the {@link liam.util.Encryptor.Format#MODULAR} format, so objects of
+	 * any size can be read back, and files in either format can be read.
+	 *
+	 * @return The cipher.
+	 */
+	static StreamCipher encryptor() {
+		return new StreamCipher() {
+
+			@Override
+			public OutputStream encrypting(OutputStream out) {
+				return new EncryptorOutputStream(out, Encryptor.Format.MODULAR);
+			}
+
+			@Override
+			public InputStream decrypting(InputStream in) {
+				return new EncryptorInputStream(in);
+			}
+		};
+	}
+
+	/**
+	 * This method will return a cipher using AES-GCM.
+	 *
+	 * @param encryptor The encryptor holding the keys.
+	 * @return The cipher.
+	 */
+	static StreamCipher aesGcm(AesGcmEncryptor encryptor) {
+		return new StreamCipher() {
+
+			@Override
+			public OutputStream encrypting(OutputStream out) throws IOException {
+				return encryptor.encrypting(out);
+			}
+
+			@Override
+			public InputStream decrypting(InputStream in) throws IOException {
+				return encryptor.decrypting(in);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,363 @@
+package liam.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * This class encrypts data with AES in GCM mode, which (unlike
+ * {@link Encryptor}) is real, authenticated encryption: the data can't
+ * be read or changed without the key. Data is encrypted in chunks, so
+ * large data can be streamed through {@link #encrypting(OutputStream)}
+ * and {@link #decrypting(InputStream)} without holding it in memory.
+ * The format is:
+ *
+ * <pre>
+ * header: "LGCM", version (1 byte), key id (int), nonce (12 bytes), chunk size (int)
+ * chunk:  length of ciphertext (int, top bit set on the last chunk), ciphertext and tag
+ * </pre>
+ *
+ * Each chunk's nonce is the header nonce combined with the chunk number,
+ * and the header, chunk number and last-chunk flag are authenticated
+ * with every chunk, so chunks can't be reordered, dropped or cut off
+ * without decryption failing.<br><br>
+ *
+ * {@link Cipher} instances are expensive to create, so one is kept per
+ * thread and reused.
+ *
+ * @author Liam
+ */
+public final class AesGcmEncryptor {
+
+	private static final byte[] MAGIC = { 'L', 'G', 'C', 'M' };
+	private static final int VERSION = 1;
+	private static final int NONCE_LENGTH = 12;
+	private static final int TAG_BITS = 128;
+	private static final int HEADER_LENGTH = MAGIC.length + 1 + 4 + NONCE_LENGTH + 4;
+	private static final int LAST_CHUNK = 0x80000000;
+
+	/**
+	 * The default size of a plaintext chunk.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+	private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+		try {
+			return Cipher.getInstance("AES/GCM/NoPadding");
+		} catch (GeneralSecurityException ex) {
+			throw new IllegalStateException("AES/GCM is not available", ex);
+		}
+	});
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final KeyProvider keys;
+	private final int chunkSize;
+
+	/**
+	 * This constructor will create an encryptor using keys from a
+	 * provider, with the default chunk size.
+	 *
+	 * @param keys The provider of the keys.
+	 */
+	public AesGcmEncryptor(KeyProvider keys) {
+		this(keys, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * This constructor will create an encryptor using keys from a
+	 * provider, with a given chunk size.
+	 *
+	 * @param keys The provider of the keys.
+	 * @param chunkSize The size of a plaintext chunk.
+	 */
+	public AesGcmEncryptor(KeyProvider keys, int chunkSize) {
+		if (chunkSize <= 0)
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		this.keys = keys;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * This method will encrypt some bytes.
+	 *
+	 * @param data The bytes to be encrypted.
+	 * @return The encrypted bytes.
+	 */
+	public byte[] encrypt(byte[] data) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + data.length / chunkSize * 20 + 64);
+		try (OutputStream out = encrypting(bytes)) {
+			out.write(data);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Encryption failed", ex);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * This method will decrypt some bytes.
+	 *
+	 * @param data The bytes to be decrypted.
+	 * @return The decrypted bytes.
+	 * @throws IOException If the data is invalid, was changed, or was
+	 * encrypted with a different key.
+	 */
+	public byte[] decrypt(byte[] data) throws IOException {
+		try (InputStream in = decrypting(new ByteArrayInputStream(data))) {
+			return in.readAllBytes();
+		}
+	}
+
+	/**
+	 * This method will create a stream which encrypts everything written
+	 * to it. The stream must be closed to write the last chunk.
+	 *
+	 * @param out The stream to write the encrypted data to.
+	 * @return The encrypting stream.
+	 * @throws IOException If the header can't be written or the key
+	 * can't be found.
+	 */
+	public OutputStream encrypting(OutputStream out) throws IOException {
+		int keyId = keys.currentKeyId();
+		SecretKey key;
+		try {
+			key = keys.key(keyId);
+		} catch (GeneralSecurityException ex) {
+			throw new IOException("Key not found: " + keyId, ex);
+		}
+
+		byte[] nonce = new byte[NONCE_LENGTH];
+		RANDOM.nextBytes(nonce);
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.put(MAGIC).put((byte) VERSION).putInt(keyId).put(nonce).putInt(chunkSize);
+		out.write(header.array());
+
+		return new ChunkOutputStream(out, key, header.array(), chunkSize);
+	}
+
+	/**
+	 * This method will create a stream which decrypts the data read from
+	 * another stream. An {@link IOException} is thrown by the stream if
+	 * the data was changed or cut off.
+	 *
+	 * @param in The stream of encrypted data.
+	 * @return The decrypting stream.
+	 * @throws IOException If the header is invalid or the key can't be
+	 * found.
+	 */
+	public InputStream decrypting(InputStream in) throws IOException {
+		byte[] header = new byte[HEADER_LENGTH];
+		new DataInputStream(in).readFully(header);
+
+		ByteBuffer buffer = ByteBuffer.wrap(header);
+		byte[] magic = new byte[MAGIC.length];
+		buffer.get(magic);
+		if (!Arrays.equals(magic, MAGIC))
+			throw new IOException("Not AES-GCM encrypted data");
+		if (buffer.get() != VERSION)
+			throw new IOException("Unsupported version");
+
+		int keyId = buffer.getInt();
+		buffer.position(buffer.position() + NONCE_LENGTH);
+		int size = buffer.getInt();
+		if (size <= 0)
+			throw new IOException("Invalid chunk size: " + size);
+
+		try {
+			return new ChunkInputStream(in, keys.key(keyId), header, size);
+		} catch (GeneralSecurityException ex) {
+			throw new IOException("Key not found: " + keyId, ex);
+		}
+	}
+
+	/**
+	 * This method will check if data starts with the header written by
+	 * this class.
+	 *
+	 * @param header The first bytes of the data (at least 4).
+	 * @return Whether the data was encrypted by this class.
+	 */
+	public static boolean isEncrypted(byte[] header) {
+		return header.length >= MAGIC.length && Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC);
+	}
+
+	/**
+	 * Encrypts or decrypts one chunk with the thread's cipher.
+	 */
+	private static byte[] chunk(int mode, SecretKey key, byte[] header, long index, boolean last, byte[] data,
+			int length) throws IOException {
+		byte[] nonce = Arrays.copyOfRange(header, MAGIC.length + 5, MAGIC.length + 5 + NONCE_LENGTH);
+		for (int i = 0; i < 8; i++)
+			nonce[NONCE_LENGTH - 1 - i] ^= (byte) (index >>> (8 * i));
+
+		ByteBuffer aad = ByteBuffer.allocate(header.length + 9);
+		aad.put(header).putLong(index).put((byte) (last ? 1 : 0));
+
+		try {
+			Cipher cipher = CIPHERS.get();
+			cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, nonce));
+			cipher.updateAAD(aad.array());
+			return cipher.doFinal(data, 0, length);
+		} catch (GeneralSecurityException ex) {
+			throw new IOException(mode == Cipher.DECRYPT_MODE ? "Decryption failed: data was changed or the key is wrong"
+					: "Encryption failed", ex);
+		}
+	}
+
+	/**
+	 * Buffers a chunk of plaintext and writes it encrypted. The last chunk
+	 * is only written on close, so it can be marked as the last.
+	 */
+	private static final class ChunkOutputStream extends OutputStream {
+
+		private final OutputStream out;
+		private final SecretKey key;
+		private final byte[] header;
+		private final byte[] buffer;
+		private int count;
+		private long index;
+		private boolean closed;
+
+		private ChunkOutputStream(OutputStream out, SecretKey key, byte[] header, int chunkSize) {
+			this.out = out;
+			this.key = key;
+			this.header = header;
+			this.buffer = new byte[chunkSize];
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (closed)
+				throw new IOException("Stream closed");
+
+			while (len > 0) {
+				if (count == buffer.length)
+					writeChunk(false);
+
+				int n = Math.min(len, buffer.length - count);
+				System.arraycopy(b, off, buffer, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed)
+				return;
+			closed = true;
+
+			try {
+				writeChunk(true);
+				out.flush();
+			} finally {
+				out.close();
+			}
+		}
+
+		private void writeChunk(boolean last) throws IOException {
+			byte[] encrypted = chunk(Cipher.ENCRYPT_MODE, key, header, index++, last, buffer, count);
+			int length = encrypted.length | (last ? LAST_CHUNK : 0);
+			out.write(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8),
+					(byte) length });
+			out.write(encrypted);
+			count = 0;
+		}
+	}
+
+	/**
+	 * Reads and decrypts one chunk at a time.
+	 */
+	private static final class ChunkInputStream extends InputStream {
+
+		private final DataInputStream in;
+		private final SecretKey key;
+		private final byte[] header;
+		private final int chunkSize;
+		private byte[] chunk = new byte[0];
+		private int position;
+		private long index;
+		private boolean last;
+
+		private ChunkInputStream(InputStream in, SecretKey key, byte[] header, int chunkSize) {
+			this.in = new DataInputStream(in);
+			this.key = key;
+			this.header = header;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (position == chunk.length && !nextChunk())
+				return -1;
+			return chunk[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (position == chunk.length && !nextChunk())
+				return -1;
+
+			int n = Math.min(len, chunk.length - position);
+			System.arraycopy(chunk, position, b, off, n);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		private boolean nextChunk() throws IOException {
+			while (!last) {
+				int length;
+				try {
+					length = in.readInt();
+				} catch (EOFException ex) {
+					throw new IOException("Encrypted data was cut off", ex);
+				}
+
+				last = (length & LAST_CHUNK) != 0;
+				length &= ~LAST_CHUNK;
+				if (length > chunkSize + TAG_BITS / 8)
+					throw new IOException("Invalid chunk length: " + length);
+
+				byte[] encrypted = new byte[length];
+				in.readFully(encrypted);
+				chunk = AesGcmEncryptor.chunk(Cipher.DECRYPT_MODE, key, header, index++, last, encrypted, length);
+				position = 0;
+				if (chunk.length > 0)
+					return true;
+			}
+			return false;
+		}
+	}
+
+}
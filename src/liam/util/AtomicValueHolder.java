@@ -0,0 +1,256 @@
+package liam.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * This class is a thread-safe counterpart to {@link ValueHolder}, which
+ * can be shared between threads. A value set on one thread is seen by the
+ * others, and the value can be updated atomically.
+ *
+ * For example:
+ *
+ * <pre>
+ * {@code
+ * 	AtomicValueHolder<String> nameHolder = new AtomicValueHolder<>("Peter");
+ * 	executor.submit(() -> nameHolder.compareAndSet("Peter", "Rohan"));
+ * }
+ * </pre>
+ *
+ * The value is accessed through a {@link VarHandle}, so as well as the
+ * usual volatile access, weaker (and cheaper) access modes can be chosen:
+ * acquire/release, which orders accesses around it, and opaque, which
+ * only guarantees the value is eventually seen. Uncontended access costs
+ * no more than the field itself.
+ *
+ * Compare and set compares references with ==, not equals.
+ *
+ * @author Liam
+ * @param <T>
+ *            The type for the value held.
+ */
+public final class AtomicValueHolder<T> {
+
+	private static final VarHandle VALUE;
+
+	static {
+		try {
+			VALUE = MethodHandles.lookup().findVarHandle(AtomicValueHolder.class, "value", Object.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * The generic value object.
+	 */
+	private volatile T value;
+
+	/**
+	 * This contructor is used if no initial value is to be specified upon
+	 * instantiation.
+	 */
+	public AtomicValueHolder() {
+	}
+
+	/**
+	 * This constructor is used if an initial value is to be specified upon
+	 * instantiation.
+	 *
+	 * @param value
+	 *            The initial value to set.
+	 */
+	public AtomicValueHolder(T value) {
+		this.value = value;
+	}
+
+	/**
+	 * This is used to check whether there is a value set.
+	 *
+	 * @return Whether value is not null.
+	 */
+	public boolean hasValue() {
+		return get() != null;
+	}
+
+	/**
+	 * This is called if the value is to be set or changed, with volatile
+	 * access.
+	 *
+	 * @param value
+	 *            The value to set.
+	 */
+	public void set(T value) {
+		this.value = value;
+	}
+
+	/**
+	 * This is called if the value is to be accessed, with volatile access.
+	 *
+	 * @return The present value.
+	 */
+	public T get() {
+		return value;
+	}
+
+	/**
+	 * This is called to set the value with release access: writes before
+	 * it are seen by a thread which reads the value with acquire access.
+	 *
+	 * @param value
+	 *            The value to set.
+	 */
+	public void setRelease(T value) {
+		VALUE.setRelease(this, value);
+	}
+
+	/**
+	 * This is called to access the value with acquire access.
+	 *
+	 * @return The present value.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getAcquire() {
+		return (T) VALUE.getAcquire(this);
+	}
+
+	/**
+	 * This is called to set the value with opaque access: the value is
+	 * seen by other threads eventually, with no ordering of other writes.
+	 *
+	 * @param value
+	 *            The value to set.
+	 */
+	public void setOpaque(T value) {
+		VALUE.setOpaque(this, value);
+	}
+
+	/**
+	 * This is called to access the value with opaque access.
+	 *
+	 * @return The present value.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getOpaque() {
+		return (T) VALUE.getOpaque(this);
+	}
+
+	/**
+	 * This is called to set the value if it is the expected value.
+	 *
+	 * @param expected
+	 *            The value expected to be held.
+	 * @param value
+	 *            The value to set.
+	 * @return Whether the value was set.
+	 */
+	public boolean compareAndSet(T expected, T value) {
+		return VALUE.compareAndSet(this, expected, value);
+	}
+
+	/**
+	 * This is called to set the value if it is the expected value, but may
+	 * fail even when it is, which can be cheaper in a loop.
+	 *
+	 * @param expected
+	 *            The value expected to be held.
+	 * @param value
+	 *            The value to set.
+	 * @return Whether the value was set.
+	 */
+	public boolean weakCompareAndSet(T expected, T value) {
+		return VALUE.weakCompareAndSet(this, expected, value);
+	}
+
+	/**
+	 * This is called to set the value and return the previous one.
+	 *
+	 * @param value
+	 *            The value to set.
+	 * @return The previous value.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getAndSet(T value) {
+		return (T) VALUE.getAndSet(this, value);
+	}
+
+	/**
+	 * This is called to update the value atomically with a function. The
+	 * function may be called more than once if other threads update the
+	 * value at the same time, so it should have no side effects.
+	 *
+	 * @param function
+	 *            The function to apply to the value.
+	 * @return The previous value.
+	 */
+	public T getAndUpdate(UnaryOperator<T> function) {
+		T previous = get();
+		T next = null;
+		for (boolean haveNext = false;;) {
+			if (!haveNext)
+				next = function.apply(previous);
+			if (weakCompareAndSet(previous, next))
+				return previous;
+			haveNext = previous == (previous = get());
+		}
+	}
+
+	/**
+	 * This is called to update the value atomically with a function. The
+	 * function may be called more than once if other threads update the
+	 * value at the same time, so it should have no side effects.
+	 *
+	 * @param function
+	 *            The function to apply to the value.
+	 * @return The updated value.
+	 */
+	public T updateAndGet(UnaryOperator<T> function) {
+		T previous = get();
+		T next = null;
+		for (boolean haveNext = false;;) {
+			if (!haveNext)
+				next = function.apply(previous);
+			if (weakCompareAndSet(previous, next))
+				return next;
+			haveNext = previous == (previous = get());
+		}
+	}
+
+	/**
+	 * This is called to combine the value atomically with another. The
+	 * function may be called more than once if other threads update the
+	 * value at the same time, so it should have no side effects.
+	 *
+	 * @param x
+	 *            The value to combine with.
+	 * @param function
+	 *            The function taking the present value and x.
+	 * @return The previous value.
+	 */
+	public T getAndAccumulate(T x, BinaryOperator<T> function) {
+		return getAndUpdate(previous -> function.apply(previous, x));
+	}
+
+	/**
+	 * This is called to combine the value atomically with another. The
+	 * function may be called more than once if other threads update the
+	 * value at the same time, so it should have no side effects.
+	 *
+	 * @param x
+	 *            The value to combine with.
+	 * @param function
+	 *            The function taking the present value and x.
+	 * @return The updated value.
+	 */
+	public T accumulateAndGet(T x, BinaryOperator<T> function) {
+		return updateAndGet(previous -> function.apply(previous, x));
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(get());
+	}
+
+}
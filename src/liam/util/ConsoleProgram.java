@@ -1,16 +1,39 @@
 package liam.util;
 
-import java.text.DecimalFormat;
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.InputMismatchException;
-import java.util.Random;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 /**
  * The <code>class</code> class simplifies code for ease of learning,
  * programming and debugging.<br>
+ * <br>
+ * Programs which read or write a lot can turn on fast mode with
+ * {@link #setFastMode(boolean)}. Input is then read straight from the
+ * bytes of <code>System.in</code> instead of through a {@link Scanner},
+ * and output is buffered until {@link #flush()} is called, more input
+ * is needed, or the program ends.<br>
+ * <br>
+ * Lines can also be read with a timeout or asynchronously, with
+ * {@link #readLine(Duration)} and {@link #readLineAsync()}. These start
+ * an input pump: a thread which reads lines from <code>System.in</code>
+ * into a bounded queue, which the other read methods then read from too.<br>
  * 
  * @author Liam<br>
  * @version 1.0
@@ -22,6 +45,119 @@ public class ConsoleProgram {
 	 */
 	private static Scanner scan = new Scanner(System.in);
 
+	/**
+	 * The stream input is read from: <code>System.in</code>, or the input
+	 * pump once it has started.
+	 */
+	private static InputStream input = System.in;
+
+	/**
+	 * The input pump, or null if it hasn't started.
+	 */
+	private static InputPump pump;
+
+	/**
+	 * This reader is used to get input in fast mode, or null.
+	 */
+	private static ConsoleReader reader;
+
+	/**
+	 * This writer buffers output in fast mode, or null.
+	 */
+	private static PrintWriter out;
+
+	/**
+	 * Whether output is flushed when the program ends.
+	 */
+	private static boolean flushOnExit;
+
+	/**
+	 * Turns fast mode on or off. In fast mode input is read by a
+	 * byte-level tokenizer and output is buffered. The same methods are
+	 * used in both modes, and invalid input gives the same messages,
+	 * but in fast mode the invalid line is skipped.<br>
+	 * Input which has been read ahead by one mode can't be read by the
+	 * other, so the mode should be set before reading anything.
+	 * 
+	 * @param fast
+	 *            Whether to use fast mode
+	 */
+	public static synchronized void setFastMode(boolean fast) {
+		if (fast == isFastMode())
+			return;
+
+		if (fast) {
+			out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), false);
+			reader = new ConsoleReader(input, out);
+
+			if (!flushOnExit) {
+				flushOnExit = true;
+				Runtime.getRuntime().addShutdownHook(new Thread(ConsoleProgram::flush));
+			}
+		} else {
+			out.flush();
+			out = null;
+			reader = null;
+		}
+	}
+
+	/**
+	 * Starts the input pump on a daemon thread, if it hasn't started.
+	 * 
+	 * @see #startInputPump(ThreadFactory)
+	 */
+	public static void startInputPump() {
+		startInputPump(runnable -> {
+			Thread thread = new Thread(runnable, "ConsoleProgram input");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts the input pump on a thread from a factory, if it hasn't
+	 * started. The pump reads lines from <code>System.in</code> into a
+	 * bounded queue, and all reads take their input from it. The pump
+	 * is started by the first call to {@link #readLine(Duration)} or
+	 * {@link #readLineAsync()}, but input already read ahead by the
+	 * blocking methods can't be passed to it, so it should be started
+	 * before reading anything if both are used.
+	 * 
+	 * @param factory
+	 *            The factory to create the thread with, which can create
+	 *            virtual threads where they are available
+	 */
+	public static synchronized void startInputPump(ThreadFactory factory) {
+		if (pump != null)
+			return;
+
+		InputPump p = new InputPump(System.in, InputPump.DEFAULT_CAPACITY);
+		p.start(factory);
+		pump = p;
+		input = p.stream();
+		scan = new Scanner(input);
+		if (reader != null)
+			reader = new ConsoleReader(input, out);
+	}
+
+	/**
+	 * @return Whether fast mode is on
+	 */
+	public static boolean isFastMode() {
+		return reader != null;
+	}
+
+	/**
+	 * Writes any output buffered in fast mode to the console.
+	 */
+	public static void flush() {
+		PrintWriter writer = out;
+		if (writer != null)
+			writer.flush();
+		else
+			System.out.flush();
+	}
+
 	/**
 	 * Prints a line to the console.
 	 * 
@@ -31,14 +167,20 @@ public class ConsoleProgram {
 	 *            The generic type
 	 */
 	public static <T> void print(T text) {
-		System.out.print(text);
+		if (out != null)
+			out.print(text);
+		else
+			System.out.print(text);
 	}
 
 	/**
 	 * Moves console caret to next line.
 	 */
 	public static void println() {
-		System.out.println();
+		if (out != null)
+			out.println();
+		else
+			System.out.println();
 	}
 
 	/**
@@ -50,7 +192,10 @@ public class ConsoleProgram {
 	 *            The generic type
 	 */
 	public static <T> void println(T text) {
-		System.out.println(text);
+		if (out != null)
+			out.println(text);
+		else
+			System.out.println(text);
 	}
 
 	/**
@@ -59,7 +204,7 @@ public class ConsoleProgram {
 	 * @return The String input
 	 */
 	public static String readLine() {
-		String s = scan.nextLine();
+		String s = nextLine();
 		return s;
 	}
 
@@ -73,11 +218,63 @@ public class ConsoleProgram {
 	 * @return The String input
 	 */
 	public static <T> String readLine(T prompt) {
-		System.out.print(prompt);
-		String s = scan.nextLine();
+		print(prompt);
+		String s = nextLine();
 		return s;
 	}
 
+	/**
+	 * Reads String input from console, waiting no longer than a timeout.
+	 * If no line is read in time, the next line is left for the next
+	 * read.
+	 * 
+	 * @param timeout
+	 *            The longest time to wait
+	 * @return The String input, or null if the timeout passed or the
+	 *         thread was interrupted
+	 * @throws NoSuchElementException
+	 *             If input has ended
+	 */
+	public static String readLine(Duration timeout) {
+		startInputPump();
+		flush();
+		return pump.poll(timeout);
+	}
+
+	/**
+	 * Reads String input from console with prompt, waiting no longer
+	 * than a timeout.
+	 * 
+	 * @param prompt
+	 *            The prompt text
+	 * @param timeout
+	 *            The longest time to wait
+	 * @param <T>
+	 *            The generic type
+	 * @return The String input, or null if the timeout passed or the
+	 *         thread was interrupted
+	 * @throws NoSuchElementException
+	 *             If input has ended
+	 */
+	public static <T> String readLine(T prompt, Duration timeout) {
+		print(prompt);
+		return readLine(timeout);
+	}
+
+	/**
+	 * Reads String input from console without blocking. Lines go to
+	 * futures in the order they were asked for. Cancelling the future
+	 * leaves its line for the next read.
+	 * 
+	 * @return A future which completes with the String input, or with a
+	 *         NoSuchElementException if input has ended
+	 */
+	public static CompletableFuture<String> readLineAsync() {
+		startInputPump();
+		flush();
+		return pump.next();
+	}
+
 	/**
 	 * Reads byte input from console.
 	 * 
@@ -85,12 +282,12 @@ public class ConsoleProgram {
 	 */
 	public static byte readByte() {
 		try {
-			byte b = scan.nextByte();
-			scan.nextLine();
+			byte b = nextByte(10);
+			skipLine();
 
 			return b;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -104,12 +301,12 @@ public class ConsoleProgram {
 	 */
 	public static byte readByte(int radix) {
 		try {
-			byte b = scan.nextByte(radix);
-			scan.nextLine();
+			byte b = nextByte(radix);
+			skipLine();
 
 			return b;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -125,14 +322,14 @@ public class ConsoleProgram {
 	 */
 	public static <T> byte readByte(T prompt) {
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			byte b = scan.nextByte();
-			scan.nextLine();
+			byte b = nextByte(10);
+			skipLine();
 
 			return b;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -150,14 +347,14 @@ public class ConsoleProgram {
 	 */
 	public static <T> byte readByte(T prompt, int radix) {
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			byte b = scan.nextByte(radix);
-			scan.nextLine();
+			byte b = nextByte(radix);
+			skipLine();
 
 			return b;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -169,12 +366,12 @@ public class ConsoleProgram {
 	 */
 	public static short readShort() {
 		try {
-			short s = scan.nextShort();
-			scan.nextLine();
+			short s = nextShort(10);
+			skipLine();
 
 			return s;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -188,12 +385,12 @@ public class ConsoleProgram {
 	 */
 	public static short readShort(int radix) {
 		try {
-			short s = scan.nextShort(radix);
-			scan.nextLine();
+			short s = nextShort(radix);
+			skipLine();
 
 			return s;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -209,14 +406,14 @@ public class ConsoleProgram {
 	 */
 	public static <T> short readShort(T prompt) {
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			short s = scan.nextShort();
-			scan.nextLine();
+			short s = nextShort(10);
+			skipLine();
 
 			return s;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -234,14 +431,14 @@ public class ConsoleProgram {
 	 */
 	public static <T> short readShort(T prompt, int radix) {
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			short s = scan.nextShort(radix);
-			scan.nextLine();
+			short s = nextShort(radix);
+			skipLine();
 
 			return s;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -253,12 +450,12 @@ public class ConsoleProgram {
 	 */
 	public static int readInt() {
 		try {
-			int i = scan.nextInt();
-			scan.nextLine();
+			int i = nextInt(10);
+			skipLine();
 
 			return i;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -272,12 +469,12 @@ public class ConsoleProgram {
 	 */
 	public static int readInt(int radix) {
 		try {
-			int i = scan.nextInt(radix);
-			scan.nextLine();
+			int i = nextInt(radix);
+			skipLine();
 
 			return i;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -293,14 +490,14 @@ public class ConsoleProgram {
 	 */
 	public static <T> int readInt(T prompt) {
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			int i = scan.nextInt();
-			scan.nextLine();
+			int i = nextInt(10);
+			skipLine();
 
 			return i;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -318,14 +515,14 @@ public class ConsoleProgram {
 	 */
 	public static <T> int readInt(T prompt, int radix) {
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			int i = scan.nextInt(radix);
-			scan.nextLine();
+			int i = nextInt(radix);
+			skipLine();
 
 			return i;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -337,12 +534,12 @@ public class ConsoleProgram {
 	 */
 	public static long readLong() {
 		try {
-			long l = scan.nextLong();
-			scan.nextLine();
+			long l = nextLong(10);
+			skipLine();
 
 			return l;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -356,12 +553,12 @@ public class ConsoleProgram {
 	 */
 	public static long readLong(int radix) {
 		try {
-			long l = scan.nextLong(radix);
-			scan.nextLine();
+			long l = nextLong(radix);
+			skipLine();
 
 			return l;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -377,14 +574,14 @@ public class ConsoleProgram {
 	 */
 	public static <T> long readLong(T prompt) {
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			long l = scan.nextLong();
-			scan.nextLine();
+			long l = nextLong(10);
+			skipLine();
 
 			return l;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -403,18 +600,143 @@ public class ConsoleProgram {
 	public static <T> long readLong(T prompt, int radix) {
 
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			long l = scan.nextLong(radix);
-			scan.nextLine();
+			long l = nextLong(radix);
+			skipLine();
 
 			return l;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
 
+	/**
+	 * Reads a number of int values from console, separated by spaces or
+	 * lines. The rest of the line after the last value is skipped. In
+	 * fast mode the values are parsed straight into the array.
+	 * 
+	 * @param n
+	 *            The number of values
+	 * @return The values, with 0 for any invalid input
+	 */
+	public static int[] readInts(int n) {
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++)
+			values[i] = nextIntValue();
+		if (n > 0)
+			skipLine();
+
+		return values;
+	}
+
+	/**
+	 * Reads a number of long values from console, separated by spaces or
+	 * lines. The rest of the line after the last value is skipped. In
+	 * fast mode the values are parsed straight into the array.
+	 * 
+	 * @param n
+	 *            The number of values
+	 * @return The values, with 0 for any invalid input
+	 */
+	public static long[] readLongs(int n) {
+		long[] values = new long[n];
+		for (int i = 0; i < n; i++)
+			values[i] = nextLongValue();
+		if (n > 0)
+			skipLine();
+
+		return values;
+	}
+
+	/**
+	 * Reads a number of double values from console, separated by spaces
+	 * or lines. The rest of the line after the last value is skipped. In
+	 * fast mode the values are parsed straight into the array.
+	 * 
+	 * @param n
+	 *            The number of values
+	 * @return The values, with 0.0 for any invalid input
+	 */
+	public static double[] readDoubles(int n) {
+		double[] values = new double[n];
+		for (int i = 0; i < n; i++)
+			values[i] = nextDoubleValue();
+		if (n > 0)
+			skipLine();
+
+		return values;
+	}
+
+	/**
+	 * Reads int values from console as they are needed, until the end of
+	 * input. Values are separated by spaces or lines.
+	 * 
+	 * @return The stream of values, with 0 for any invalid input
+	 */
+	public static IntStream readIntStream() {
+		return readIntStream(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Reads a number of int values from console as they are needed, or
+	 * fewer if input ends. Values are separated by spaces or lines, and
+	 * the rest of the line after the last value isn't skipped.
+	 * 
+	 * @param n
+	 *            The largest number of values
+	 * @return The stream of values, with 0 for any invalid input
+	 */
+	public static IntStream readIntStream(long n) {
+		return StreamSupport.intStream(new Spliterators.AbstractIntSpliterator(n, Spliterator.ORDERED) {
+			private long remaining = n;
+
+			@Override
+			public boolean tryAdvance(IntConsumer action) {
+				if (remaining <= 0 || !hasNextToken())
+					return false;
+				remaining--;
+				action.accept(nextIntValue());
+				return true;
+			}
+		}, false);
+	}
+
+	/**
+	 * Reads long values from console as they are needed, until the end
+	 * of input. Values are separated by spaces or lines.
+	 * 
+	 * @return The stream of values, with 0 for any invalid input
+	 */
+	public static LongStream readLongStream() {
+		return readLongStream(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Reads a number of long values from console as they are needed, or
+	 * fewer if input ends. Values are separated by spaces or lines, and
+	 * the rest of the line after the last value isn't skipped.
+	 * 
+	 * @param n
+	 *            The largest number of values
+	 * @return The stream of values, with 0 for any invalid input
+	 */
+	public static LongStream readLongStream(long n) {
+		return StreamSupport.longStream(new Spliterators.AbstractLongSpliterator(n, Spliterator.ORDERED) {
+			private long remaining = n;
+
+			@Override
+			public boolean tryAdvance(LongConsumer action) {
+				if (remaining <= 0 || !hasNextToken())
+					return false;
+				remaining--;
+				action.accept(nextLongValue());
+				return true;
+			}
+		}, false);
+	}
+
 	/**
 	 * Reads float input from console.
 	 * 
@@ -422,12 +744,12 @@ public class ConsoleProgram {
 	 */
 	public static float readFloat() {
 		try {
-			float f = scan.nextFloat();
-			scan.nextLine();
+			float f = nextFloat();
+			skipLine();
 
 			return f;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0.0f;
 		}
 	}
@@ -443,14 +765,14 @@ public class ConsoleProgram {
 	 */
 	public static <T> float readFloat(T prompt) {
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			float f = scan.nextFloat();
-			scan.nextLine();
+			float f = nextFloat();
+			skipLine();
 
 			return f;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0.0f;
 		}
 	}
@@ -462,12 +784,12 @@ public class ConsoleProgram {
 	 */
 	public static double readDouble() {
 		try {
-			double d = scan.nextDouble();
-			scan.nextLine();
+			double d = nextDouble();
+			skipLine();
 
 			return d;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -483,14 +805,14 @@ public class ConsoleProgram {
 	 */
 	public static <T> double readDouble(T prompt) {
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			double d = scan.nextDouble();
-			scan.nextLine();
+			double d = nextDouble();
+			skipLine();
 
 			return d;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to 0 by default.");
+			println("Caught: " + e + " Value has been set to 0 by default.");
 			return 0;
 		}
 	}
@@ -502,10 +824,10 @@ public class ConsoleProgram {
 	 */
 	public static char readChar() {
 		try {
-			char c = scan.nextLine().charAt(0);
+			char c = nextLine().charAt(0);
 			return c;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to null by default.");
+			println("Caught: " + e + " Value has been set to null by default.");
 			return 0;
 		}
 	}
@@ -521,11 +843,11 @@ public class ConsoleProgram {
 	 */
 	public static <T> char readChar(T prompt) {
 		try {
-			System.out.print(prompt);
-			char c = scan.nextLine().charAt(0);
+			print(prompt);
+			char c = nextLine().charAt(0);
 			return c;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to null by default.");
+			println("Caught: " + e + " Value has been set to null by default.");
 			return 0;
 		}
 	}
@@ -537,12 +859,12 @@ public class ConsoleProgram {
 	 */
 	public static boolean readBoolean() {
 		try {
-			boolean b = scan.nextBoolean();
-			scan.nextLine();
+			boolean b = nextBoolean();
+			skipLine();
 
 			return b;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to false by default.");
+			println("Caught: " + e + " Value has been set to false by default.");
 			return false;
 		}
 	}
@@ -558,14 +880,14 @@ public class ConsoleProgram {
 	 */
 	public static <T> boolean readBoolean(T prompt) {
 		try {
-			System.out.print(prompt);
+			print(prompt);
 
-			boolean b = scan.nextBoolean();
-			scan.nextLine();
+			boolean b = nextBoolean();
+			skipLine();
 
 			return b;
 		} catch (InputMismatchException e) {
-			System.out.println("Caught: " + e + " Value has been set to false by default.");
+			println("Caught: " + e + " Value has been set to false by default.");
 			return false;
 		}
 	}
@@ -584,18 +906,29 @@ public class ConsoleProgram {
 		}
 	}
 
+	/**
+	 * Pauses current thread for a precise time, which can be less than a
+	 * millisecond. To run a loop at a fixed rate, use a {@link Pacer}.
+	 * 
+	 * @param time
+	 *            The pause time.
+	 */
+	public static void pause(Duration time) {
+		Pacer.awaitNanos(System.nanoTime() + time.toNanos());
+	}
+
 	/**
 	 * @return The current date in the format dd/MM/uuuu
 	 */
 	public static String currentDate() {
-		return LocalDate.now().format(DateTimeFormatter.ofPattern("dd/MM/uuuu"));
+		return LocalDate.now().format(Formatters.DATE);
 	}
 
 	/**
 	 * @return The current time in the format HH:mm
 	 */
 	public static String currentTime() {
-		return LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
+		return LocalTime.now().format(Formatters.TIME);
 	}
 
 	/**
@@ -606,24 +939,13 @@ public class ConsoleProgram {
 	 * @param l
 	 *            The largest value
 	 * @return The generated number or 0 if s is greater than l
+	 * @see RandomNumbers
 	 */
 	public static int getRandomNum(int s, int l) {
 		if (s > l)
 			return 0;
 
-		Random rand = new Random();
-
-		if (s == 0)
-			return rand.nextInt(l + 1);
-
-		if (s < 0)
-			return s + rand.nextInt(l + 1 + Math.abs(s));
-
-		if (s > 0)
-			return s + rand.nextInt(l + 1 - s);
-
-		else
-			return 0;
+		return RandomNumbers.nextInt(s, l);
 	}
 	
 	/**
@@ -634,19 +956,10 @@ public class ConsoleProgram {
 	 * @return The rounded number as a String.
 	 */
 	public static String rounded(float num, int dp) {
-		String fmt = "";
-		
 		if (dp < 0)
 			return num + "";
-		else if (dp == 0)
-			fmt = "0";
-		else
-			fmt = "0.";
-		
-		for (int i = 0; i < dp; i++)
-			fmt += "0";
 
-		return new DecimalFormat(fmt).format(num);
+		return Formatters.decimal(dp).format(num);
 	}
 	
 	/**
@@ -657,26 +970,135 @@ public class ConsoleProgram {
 	 * @return The rounded number as a String.
 	 */
 	public static String rounded(double num, int dp) {
-		String fmt = "";
-		
 		if (dp < 0)
 			return num + "";
-		else if (dp == 0)
-			fmt = "0";
-		else
-			fmt = "0.";
-		
-		for (int i = 0; i < dp; i++)
-			fmt += "0";
-		
-		return new DecimalFormat(fmt).format(num);
+
+		return Formatters.decimal(dp).format(num);
 	}
 
 	/**
 	 * Ends program.
 	 */
 	public static void endProgram() {
+		flush();
 		System.exit(0);
 	}
 
+	private static boolean hasNextToken() {
+		return reader != null ? reader.hasNext() : scan.hasNext();
+	}
+
+	/**
+	 * Reads one value for the bulk readers. An invalid token is skipped
+	 * rather than the whole line, so the values after it can be read.
+	 */
+	private static int nextIntValue() {
+		try {
+			return reader != null ? reader.nextInt() : scan.nextInt();
+		} catch (InputMismatchException e) {
+			if (reader == null)
+				scan.next();
+			println("Caught: " + e + " Value has been set to 0 by default.");
+			return 0;
+		}
+	}
+
+	private static long nextLongValue() {
+		try {
+			return reader != null ? reader.nextLong() : scan.nextLong();
+		} catch (InputMismatchException e) {
+			if (reader == null)
+				scan.next();
+			println("Caught: " + e + " Value has been set to 0 by default.");
+			return 0;
+		}
+	}
+
+	private static double nextDoubleValue() {
+		try {
+			return reader != null ? reader.nextDouble() : scan.nextDouble();
+		} catch (InputMismatchException e) {
+			if (reader == null)
+				scan.next();
+			println("Caught: " + e + " Value has been set to 0 by default.");
+			return 0;
+		}
+	}
+
+	private static String nextLine() {
+		return reader != null ? reader.nextLine() : scan.nextLine();
+	}
+
+	private static void skipLine() {
+		if (reader != null)
+			reader.skipLine();
+		else
+			scan.nextLine();
+	}
+
+	private static byte nextByte(int radix) {
+		return reader != null ? (byte) nextWhole(radix, Byte.MIN_VALUE, Byte.MAX_VALUE) : scan.nextByte(radix);
+	}
+
+	private static short nextShort(int radix) {
+		return reader != null ? (short) nextWhole(radix, Short.MIN_VALUE, Short.MAX_VALUE) : scan.nextShort(radix);
+	}
+
+	private static int nextInt(int radix) {
+		return reader != null ? (int) nextWhole(radix, Integer.MIN_VALUE, Integer.MAX_VALUE) : scan.nextInt(radix);
+	}
+
+	private static long nextLong(int radix) {
+		return reader != null ? nextWhole(radix, Long.MIN_VALUE, Long.MAX_VALUE) : scan.nextLong(radix);
+	}
+
+	/**
+	 * Reads a whole number in fast mode, skipping the line if it is
+	 * invalid.
+	 */
+	private static long nextWhole(int radix, long min, long max) {
+		try {
+			return reader.nextLong(radix, min, max);
+		} catch (InputMismatchException e) {
+			reader.skipLine();
+			throw e;
+		}
+	}
+
+	private static float nextFloat() {
+		if (reader == null)
+			return scan.nextFloat();
+
+		try {
+			return reader.nextFloat();
+		} catch (InputMismatchException e) {
+			reader.skipLine();
+			throw e;
+		}
+	}
+
+	private static double nextDouble() {
+		if (reader == null)
+			return scan.nextDouble();
+
+		try {
+			return reader.nextDouble();
+		} catch (InputMismatchException e) {
+			reader.skipLine();
+			throw e;
+		}
+	}
+
+	private static boolean nextBoolean() {
+		if (reader == null)
+			return scan.nextBoolean();
+
+		try {
+			return reader.nextBoolean();
+		} catch (InputMismatchException e) {
+			reader.skipLine();
+			throw e;
+		}
+	}
+
 }
\ No newline at end of file
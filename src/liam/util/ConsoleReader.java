@@ -0,0 +1,398 @@
+package liam.util;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * This class reads tokens and lines straight from the bytes of a stream,
+ * for {@link ConsoleProgram}'s fast mode. Unlike a {@link java.util.Scanner}
+ * it doesn't use regular expressions, and numbers are parsed from the
+ * buffer without creating any objects.<br><br>
+ *
+ * Tokens are separated by whitespace, including line breaks. A token
+ * which isn't valid is still consumed, and an
+ * {@link InputMismatchException} is thrown.
+ *
+ * @author Liam
+ */
+final class ConsoleReader {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Powers of ten which are exact as doubles.
+	 */
+	private static final double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	private final InputStream in;
+	private final Flushable beforeRead;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position;
+	private int count;
+
+	/**
+	 * Holds the bytes of a token or line which has to be copied.
+	 */
+	private byte[] token = new byte[64];
+	private int tokenLength;
+
+	/**
+	 * This constructor will create a reader for a stream.
+	 *
+	 * @param in The stream to read.
+	 * @param beforeRead Flushed before blocking to read more input, so
+	 * prompts are shown; may be null.
+	 */
+	ConsoleReader(InputStream in, Flushable beforeRead) {
+		this.in = in;
+		this.beforeRead = beforeRead;
+	}
+
+	/**
+	 * This method will read the rest of the current line.
+	 *
+	 * @return The line, without its line break.
+	 * @throws NoSuchElementException If there is no more input.
+	 */
+	String nextLine() {
+		if (peek() < 0)
+			throw new NoSuchElementException("No line found");
+
+		tokenLength = 0;
+		int b;
+		while ((b = read()) >= 0 && b != '\n')
+			append(b);
+		if (tokenLength > 0 && token[tokenLength - 1] == '\r')
+			tokenLength--;
+		return new String(token, 0, tokenLength);
+	}
+
+	/**
+	 * This method will skip the rest of the current line, including its
+	 * line break.
+	 */
+	void skipLine() {
+		while (true) {
+			int n = indexOf('\n');
+			if (n >= 0) {
+				position = n + 1;
+				return;
+			}
+			position = count;
+			if (!fill())
+				return;
+		}
+	}
+
+	/**
+	 * This method will check if there is another token, reading more
+	 * input if needed.
+	 *
+	 * @return Whether there is another token.
+	 */
+	boolean hasNext() {
+		skipWhitespace();
+		return peek() >= 0;
+	}
+
+	/**
+	 * This method will read the next token as a String.
+	 *
+	 * @return The token.
+	 * @throws NoSuchElementException If there is no more input.
+	 */
+	String next() {
+		readToken();
+		return new String(token, 0, tokenLength);
+	}
+
+	/**
+	 * This method will read the next token as an int in base 10.
+	 *
+	 * @return The int.
+	 * @throws InputMismatchException If the token isn't an int.
+	 * @throws NoSuchElementException If there is no more input.
+	 */
+	int nextInt() {
+		return (int) nextLong(Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * This method will read the next token as a long in base 10.
+	 *
+	 * @return The long.
+	 * @throws InputMismatchException If the token isn't a long.
+	 * @throws NoSuchElementException If there is no more input.
+	 */
+	long nextLong() {
+		return nextLong(Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * This method will read the next token as a whole number in a radix.
+	 *
+	 * @param radix The radix.
+	 * @param min The smallest value allowed.
+	 * @param max The largest value allowed.
+	 * @return The number.
+	 * @throws InputMismatchException If the token isn't a number in the
+	 * range.
+	 * @throws NoSuchElementException If there is no more input.
+	 */
+	long nextLong(int radix, long min, long max) {
+		if (radix == 10)
+			return nextLong(min, max);
+
+		String s = next();
+		try {
+			long value = Long.parseLong(s, radix);
+			if (value < min || value > max)
+				throw new InputMismatchException();
+			return value;
+		} catch (NumberFormatException ex) {
+			throw new InputMismatchException();
+		}
+	}
+
+	/**
+	 * This method will read the next token as a double. Simple decimals
+	 * are parsed from the buffer; anything else is given to
+	 * {@link Double#parseDouble(String)}.
+	 *
+	 * @return The double.
+	 * @throws InputMismatchException If the token isn't a double.
+	 * @throws NoSuchElementException If there is no more input.
+	 */
+	double nextDouble() {
+		skipWhitespace();
+		int start = position;
+		int end = tokenEnd();
+		if (end >= 0) {
+			double value = parseSimpleDouble(buffer, start, end);
+			if (!Double.isNaN(value)) {
+				position = end;
+				return value;
+			}
+		}
+
+		String s = next();
+		try {
+			return Double.parseDouble(s);
+		} catch (NumberFormatException ex) {
+			throw new InputMismatchException();
+		}
+	}
+
+	/**
+	 * This method will read the next token as a float.
+	 *
+	 * @return The float.
+	 * @throws InputMismatchException If the token isn't a float.
+	 * @throws NoSuchElementException If there is no more input.
+	 */
+	float nextFloat() {
+		String s = next();
+		try {
+			return Float.parseFloat(s);
+		} catch (NumberFormatException ex) {
+			throw new InputMismatchException();
+		}
+	}
+
+	/**
+	 * This method will read the next token as a boolean, ignoring case.
+	 *
+	 * @return The boolean.
+	 * @throws InputMismatchException If the token isn't true or false.
+	 * @throws NoSuchElementException If there is no more input.
+	 */
+	boolean nextBoolean() {
+		String s = next();
+		if (s.equalsIgnoreCase("true"))
+			return true;
+		if (s.equalsIgnoreCase("false"))
+			return false;
+		throw new InputMismatchException();
+	}
+
+	/**
+	 * Parses a base 10 token straight from the buffer.
+	 */
+	private long nextLong(long min, long max) {
+		skipWhitespace();
+
+		boolean negative = false;
+		int b = peek();
+		if (b < 0)
+			throw new NoSuchElementException();
+		if (b == '-' || b == '+') {
+			negative = b == '-';
+			position++;
+		}
+
+		// Accumulated negatively so that MIN_VALUE fits
+		long value = 0;
+		int digits = 0;
+		boolean valid = true;
+		while ((b = peek()) >= 0 && !isWhitespace(b)) {
+			position++;
+			int digit = b - '0';
+			if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+				valid = false;
+				continue;
+			}
+			value = value * 10 - digit;
+			digits++;
+		}
+
+		if (valid && digits > 0 && (negative || value != Long.MIN_VALUE)) {
+			if (!negative)
+				value = -value;
+			if (value >= min && value <= max)
+				return value;
+		}
+		throw new InputMismatchException();
+	}
+
+	/**
+	 * Parses a token of at most 18 digits with an optional sign, point
+	 * and exponent, when the result is exact. Returns NaN for anything
+	 * else.
+	 */
+	private static double parseSimpleDouble(byte[] b, int i, int end) {
+		boolean negative = false;
+		if (i < end && (b[i] == '-' || b[i] == '+'))
+			negative = b[i++] == '-';
+
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean point = false;
+		for (; i < end; i++) {
+			int c = b[i];
+			if (c >= '0' && c <= '9') {
+				if (++digits > 18)
+					return Double.NaN;
+				mantissa = mantissa * 10 + (c - '0');
+				if (point)
+					scale--;
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if (digits == 0)
+			return Double.NaN;
+
+		if (i < end && (b[i] == 'e' || b[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (b[i] == '-' || b[i] == '+'))
+				negativeExponent = b[i++] == '-';
+			int exponent = 0;
+			int start = i;
+			for (; i < end && b[i] >= '0' && b[i] <= '9' && exponent < 1000; i++)
+				exponent = exponent * 10 + (b[i] - '0');
+			if (i == start)
+				return Double.NaN;
+			scale += negativeExponent ? -exponent : exponent;
+		}
+		if (i != end || mantissa >= 1L << 53 || scale < -22 || scale > 22)
+			return Double.NaN;
+
+		double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Copies the next token into the token buffer.
+	 */
+	private void readToken() {
+		skipWhitespace();
+		if (peek() < 0)
+			throw new NoSuchElementException();
+
+		tokenLength = 0;
+		int b;
+		while ((b = peek()) >= 0 && !isWhitespace(b)) {
+			append(b);
+			position++;
+		}
+	}
+
+	/**
+	 * Returns the end of the token at the position if all of it is in
+	 * the buffer, or -1.
+	 */
+	private int tokenEnd() {
+		for (int i = position; i < count; i++)
+			if (isWhitespace(buffer[i]))
+				return i;
+		return -1;
+	}
+
+	private void skipWhitespace() {
+		int b;
+		while ((b = peek()) >= 0 && isWhitespace(b))
+			position++;
+	}
+
+	private static boolean isWhitespace(int b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+	}
+
+	private void append(int b) {
+		if (tokenLength == token.length)
+			token = Arrays.copyOf(token, token.length * 2);
+		token[tokenLength++] = (byte) b;
+	}
+
+	private int indexOf(int b) {
+		for (int i = position; i < count; i++)
+			if (buffer[i] == b)
+				return i;
+		return -1;
+	}
+
+	private int read() {
+		int b = peek();
+		if (b >= 0)
+			position++;
+		return b;
+	}
+
+	private int peek() {
+		if (position == count && !fill())
+			return -1;
+		return buffer[position] & 0xFF;
+	}
+
+	/**
+	 * Reads more input into the buffer, keeping nothing already read.
+	 */
+	private boolean fill() {
+		try {
+			if (beforeRead != null)
+				beforeRead.flush();
+			int n = in.read(buffer, 0, buffer.length);
+			position = 0;
+			count = Math.max(n, 0);
+			return n > 0;
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+}
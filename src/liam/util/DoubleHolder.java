@@ -0,0 +1,82 @@
+package liam.util;
+
+/**
+ * This class is a {@link ValueHolder} for a double, which is stored without
+ * boxing, so it can be used as a counter inside a lambda without creating
+ * a new Double on every update.
+ * 
+ * For example:
+ * 
+ * <pre>
+ * {@code
+ * 	DoubleHolder total = new DoubleHolder();
+ * 	list.forEach(item -> total.add(item.size()));
+ * }
+ * </pre>
+ * 
+ * Like {@link ValueHolder}, it isn't thread-safe. For a counter updated
+ * from many threads, such as inside a parallel stream, use a
+ * {@link StripedLongHolder}.
+ * 
+ * @author Liam
+ */
+public final class DoubleHolder {
+
+	/**
+	 * The value.
+	 */
+	private double value;
+
+	/**
+	 * This contructor is used if the value is to start at 0.
+	 */
+	public DoubleHolder() {
+	}
+
+	/**
+	 * This constructor is used if an initial value is to be specified upon
+	 * instantiation.
+	 * 
+	 * @param value
+	 *            The initial value to set.
+	 */
+	public DoubleHolder(double value) {
+		this.value = value;
+	}
+
+	/**
+	 * This is called if the value is to be set or changed.
+	 * 
+	 * @param value
+	 *            The value to set.
+	 */
+	public void set(double value) {
+		this.value = value;
+	}
+
+	/**
+	 * This is called if the value is to be accessed.
+	 * 
+	 * @return The present value.
+	 */
+	public double get() {
+		return value;
+	}
+
+	/**
+	 * This is called to add to the value.
+	 * 
+	 * @param delta
+	 *            The amount to add.
+	 * @return The new value.
+	 */
+	public double add(double delta) {
+		return value += delta;
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(value);
+	}
+
+}
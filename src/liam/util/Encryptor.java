@@ -1,13 +1,81 @@
 package liam.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class uses double Base64 encryption to encrypt/decrypt
- * Strings.
+ * Strings. Bytes can also be encrypted from one {@link ByteBuffer}
+ * to another, and large data can be streamed through an
+ * {@link EncryptorOutputStream} or {@link EncryptorInputStream}.
+ * <br><br>
+ * Anyone who knows the scheme can reverse it without a key, so it
+ * only hides data from casual reading. Use {@link AesGcmEncryptor} for
+ * data which must be kept secret.
+ * <br><br>
+ * Data is encrypted in the {@link Format#LEGACY} format unless the
+ * {@link Format#MODULAR} format is asked for, which starts with a '$'
+ * so it can be told apart. Decrypting detects the format, so data in
+ * either format can be decrypted.
  * @author Liam
  */
 public final class Encryptor {
+
+	/**
+	 * The formats data can be encrypted in.
+	 * @author Liam
+	 */
+	public enum Format {
+
+		/**
+		 * The original format. Every Base64 character is shifted by
+		 * its position, so the shifted characters keep growing and
+		 * take up to 3 bytes of UTF-8 each. Data longer than about
+		 * 40 KB shifts characters into the surrogate range, which
+		 * can't be written, so it can't be decrypted.
+		 */
+		LEGACY,
+
+		/**
+		 * A format which shifts every Base64 character by its
+		 * position modulo 64, so it stays in the Base64 alphabet.
+		 * The output is always about 1.78 times the size of the
+		 * input, and data of any length can be decrypted.
+		 */
+		MODULAR
+	}
+
+	/**
+	 * The first character of data in the {@link Format#MODULAR} format.
+	 * It isn't in the Base64 alphabet, so it can't start legacy data.
+	 */
+	static final char MODULAR_HEADER = '$';
+
+	/**
+	 * The Base64 alphabet, shared with {@link ParallelEncryptor}.
+	 */
+	static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+			.getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * The value of each byte in {@link #ALPHABET}, or -1 for bytes which
+	 * aren't in it.
+	 */
+	static final int[] VALUES = new int[256];
+
+	static {
+		Arrays.fill(VALUES, -1);
+		for (int i = 0; i < ALPHABET.length; i++)
+			VALUES[ALPHABET[i]] = i;
+	}
 	
 	/**
 	 * Class shouldn't be instantiated.
@@ -16,11 +84,28 @@ public final class Encryptor {
 	}
 	
 	/**
-	 * This method will encrypt a String.
+	 * This method will encrypt a String in the {@link Format#LEGACY} format.
+	 * @param s The String to be encrypted.
+	 * @return The encrypted String
+	 */
+	public static String encrypt(String s) {
+		return encrypt(s, Format.LEGACY);
+	}
+
+	/**
+	 * This method will encrypt a String in a format.
 	 * @param s The String to be encrypted.
+	 * @param format The format to encrypt in.
 	 * @return The encrypted String
 	 */
-	public static String encrypt(String s) {	
+	public static String encrypt(String s, Format format) {
+		if (format == Format.MODULAR) {
+			byte[] encoded = Base64.getEncoder().encode(s.getBytes(StandardCharsets.UTF_8));
+			for (int i = 0; i < encoded.length; i++)
+				encoded[i] = shift(encoded[i], i);
+			return MODULAR_HEADER + Base64.getEncoder().encodeToString(encoded);
+		}
+
 		String str = Base64.getEncoder().encodeToString(s.getBytes());	
 		char[] chArray = new char[str.length()];
 		
@@ -32,11 +117,18 @@ public final class Encryptor {
 	}
 	
 	/**
-	 * This method will decrypt a String.
+	 * This method will decrypt a String in either format.
 	 * @param s The String to be decrypted.
 	 * @return The decrypted String
 	 */
-	public static String decrypt(String s) {		
+	public static String decrypt(String s) {
+		if (!s.isEmpty() && s.charAt(0) == MODULAR_HEADER) {
+			byte[] encoded = Base64.getDecoder().decode(s.substring(1));
+			for (int i = 0; i < encoded.length; i++)
+				encoded[i] = unshift(encoded[i], i);
+			return new String(Base64.getDecoder().decode(encoded), StandardCharsets.UTF_8);
+		}
+
 		String str = new String(Base64.getDecoder().decode(s.getBytes()));		
 		char[] chArray = new char[str.length()];
 		
@@ -47,4 +139,250 @@ public final class Encryptor {
 		return str;		
 	}
 
+	/**
+	 * This method will encrypt bytes in the {@link Format#LEGACY} format,
+	 * processing segments of them in parallel on the common fork-join
+	 * pool. The result is the same as encrypting the String whose UTF-8
+	 * bytes are given.
+	 * @param data The bytes to be encrypted.
+	 * @return The encrypted bytes, which are ASCII.
+	 * @throws IllegalArgumentException If the encrypted data would be
+	 * too large for an array.
+	 */
+	public static byte[] encryptParallel(byte[] data) {
+		return encryptParallel(data, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * This method will encrypt bytes in the {@link Format#LEGACY} format,
+	 * processing segments of them in parallel on a fork-join pool.
+	 * @param data The bytes to be encrypted.
+	 * @param pool The pool to process segments on.
+	 * @return The encrypted bytes, which are ASCII.
+	 * @throws IllegalArgumentException If the encrypted data would be
+	 * too large for an array.
+	 */
+	public static byte[] encryptParallel(byte[] data, ForkJoinPool pool) {
+		return encryptParallel(data, Format.LEGACY, pool);
+	}
+
+	/**
+	 * This method will encrypt bytes in a format, processing segments
+	 * of them in parallel on a fork-join pool.
+	 * @param data The bytes to be encrypted.
+	 * @param format The format to encrypt in.
+	 * @param pool The pool to process segments on.
+	 * @return The encrypted bytes, which are ASCII.
+	 * @throws IllegalArgumentException If the encrypted data would be
+	 * too large for an array.
+	 */
+	public static byte[] encryptParallel(byte[] data, Format format, ForkJoinPool pool) {
+		return format == Format.MODULAR ? ParallelEncryptor.encryptModular(data, pool)
+				: ParallelEncryptor.encrypt(data, pool);
+	}
+
+	/**
+	 * This method will decrypt bytes, processing segments of them in
+	 * parallel on the common fork-join pool.
+	 * @param data The bytes to be decrypted.
+	 * @return The decrypted bytes.
+	 * @throws IllegalArgumentException If the data isn't valid.
+	 */
+	public static byte[] decryptParallel(byte[] data) {
+		return decryptParallel(data, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * This method will decrypt bytes, processing segments of them in
+	 * parallel on a fork-join pool.
+	 * @param data The bytes to be decrypted.
+	 * @param pool The pool to process segments on.
+	 * @return The decrypted bytes.
+	 * @throws IllegalArgumentException If the data isn't valid.
+	 */
+	public static byte[] decryptParallel(byte[] data, ForkJoinPool pool) {
+		return ParallelEncryptor.decrypt(data, pool);
+	}
+
+	/**
+	 * This method will encrypt the remaining bytes of src into dst in the
+	 * {@link Format#LEGACY} format. The result is the same as encrypting
+	 * the String whose UTF-8 bytes are in src.
+	 * @param src The bytes to be encrypted.
+	 * @param dst The buffer to write the encrypted bytes to.
+	 * @return The number of bytes written to dst.
+	 * @throws BufferOverflowException If dst doesn't have enough space
+	 * remaining, which it will if it has {@link #maxEncryptedLength(int)}.
+	 * @throws UncheckedIOException If src is too long for the legacy
+	 * format to be decrypted.
+	 */
+	public static int encrypt(ByteBuffer src, ByteBuffer dst) {
+		return encrypt(src, dst, Format.LEGACY);
+	}
+
+	/**
+	 * This method will encrypt the remaining bytes of src into dst in a
+	 * format.
+	 * @param src The bytes to be encrypted.
+	 * @param dst The buffer to write the encrypted bytes to.
+	 * @param format The format to encrypt in.
+	 * @return The number of bytes written to dst.
+	 * @throws BufferOverflowException If dst doesn't have enough space
+	 * remaining, which it will if it has
+	 * {@link #maxEncryptedLength(int, Format)}.
+	 * @throws UncheckedIOException If src is too long for the legacy
+	 * format to be decrypted.
+	 */
+	public static int encrypt(ByteBuffer src, ByteBuffer dst, Format format) {
+		int start = dst.position();
+		try (OutputStream out = new EncryptorOutputStream(new ByteBufferOutputStream(dst), format)) {
+			transfer(src, out);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return dst.position() - start;
+	}
+
+	/**
+	 * This method will decrypt the remaining bytes of src into dst.
+	 * @param src The bytes to be decrypted.
+	 * @param dst The buffer to write the decrypted bytes to.
+	 * @return The number of bytes written to dst.
+	 * @throws BufferOverflowException If dst doesn't have enough space
+	 * remaining, which it will if it has as much as src.
+	 * @throws IllegalArgumentException If src isn't valid encrypted data.
+	 */
+	public static int decrypt(ByteBuffer src, ByteBuffer dst) {
+		int start = dst.position();
+		byte[] buffer = new byte[8192];
+		try (InputStream in = new EncryptorInputStream(new ByteBufferInputStream(src))) {
+			int n;
+			while ((n = in.read(buffer)) > 0)
+				dst.put(buffer, 0, n);
+		} catch (IOException ex) {
+			throw new IllegalArgumentException("Invalid encrypted data", ex);
+		}
+		return dst.position() - start;
+	}
+
+	/**
+	 * This method will return the most bytes that encrypting a number of
+	 * bytes in the {@link Format#LEGACY} format can produce.
+	 * @param length The number of bytes to be encrypted.
+	 * @return The largest possible encrypted length.
+	 */
+	public static int maxEncryptedLength(int length) {
+		return maxEncryptedLength(length, Format.LEGACY);
+	}
+
+	/**
+	 * This method will return the most bytes that encrypting a number of
+	 * bytes in a format can produce.
+	 * @param length The number of bytes to be encrypted.
+	 * @param format The format to encrypt in.
+	 * @return The largest possible encrypted length.
+	 */
+	public static int maxEncryptedLength(int length, Format format) {
+		long encoded = 4 * ((length + 2L) / 3);
+		if (format == Format.MODULAR)
+			return Math.toIntExact(1 + 4 * ((encoded + 2) / 3));
+
+		// Each Base64 character can become up to 3 bytes of UTF-8
+		return Math.toIntExact(4 * ((3 * encoded + 2) / 3));
+	}
+
+	/**
+	 * Shifts a Base64 character by its position within the alphabet.
+	 * Padding isn't shifted.
+	 */
+	static byte shift(byte c, long index) {
+		if (c == '=')
+			return c;
+		return ALPHABET[(int) ((value(c) + index + 1) & 0x3F)];
+	}
+
+	/**
+	 * Reverses {@link #shift(byte, long)}.
+	 */
+	static byte unshift(byte c, long index) {
+		if (c == '=')
+			return c;
+		return ALPHABET[(int) ((value(c) - index - 1) & 0x3F)];
+	}
+
+	private static int value(byte c) {
+		int value = VALUES[c & 0xFF];
+		if (value < 0)
+			throw new IllegalArgumentException("Illegal base64 character " + Integer.toHexString(c & 0xFF));
+		return value;
+	}
+
+	private static void transfer(ByteBuffer src, OutputStream out) throws IOException {
+		if (src.hasArray()) {
+			out.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+			src.position(src.limit());
+			return;
+		}
+
+		byte[] buffer = new byte[8192];
+		while (src.hasRemaining()) {
+			int n = Math.min(buffer.length, src.remaining());
+			src.get(buffer, 0, n);
+			out.write(buffer, 0, n);
+		}
+	}
+
+	/**
+	 * Writes to a ByteBuffer.
+	 */
+	private static final class ByteBufferOutputStream extends OutputStream {
+
+		private final ByteBuffer dst;
+
+		private ByteBufferOutputStream(ByteBuffer dst) {
+			this.dst = dst;
+		}
+
+		@Override
+		public void write(int b) {
+			dst.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			dst.put(b, off, len);
+		}
+	}
+
+	/**
+	 * Reads from a ByteBuffer.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer src;
+
+		private ByteBufferInputStream(ByteBuffer src) {
+			this.src = src;
+		}
+
+		@Override
+		public int read() {
+			return src.hasRemaining() ? src.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!src.hasRemaining())
+				return -1;
+			int n = Math.min(len, src.remaining());
+			src.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return src.remaining();
+		}
+	}
+
 }
@@ -0,0 +1,243 @@
+package liam.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Base64;
+
+/**
+ * This stream decrypts data encrypted by {@link Encryptor#encrypt(String)}
+ * or an {@link EncryptorOutputStream}, in a single pass and without
+ * holding the data in memory. The format is detected from the first
+ * byte, which is read when the stream is first read.
+ *
+ * @author Liam
+ */
+public class EncryptorInputStream extends InputStream {
+
+	private final PushbackInputStream in;
+
+	/**
+	 * The last stage of the pipeline: the second Base64 decoding. It is
+	 * created once the format is known.
+	 */
+	private InputStream tail;
+
+	/**
+	 * This constructor will create a stream which decrypts the data read
+	 * from another stream.
+	 *
+	 * @param in The stream of encrypted data.
+	 */
+	public EncryptorInputStream(InputStream in) {
+		this.in = new PushbackInputStream(in, 1);
+	}
+
+	@Override
+	public int read() throws IOException {
+		return tail().read();
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		return tail().read(b, off, len);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (tail != null)
+			tail.close();
+		else
+			in.close();
+	}
+
+	private InputStream tail() throws IOException {
+		if (tail == null) {
+			int first = in.read();
+			if (first == Encryptor.MODULAR_HEADER) {
+				tail = Base64.getDecoder().wrap(new ModularUnshiftInputStream(Base64.getDecoder().wrap(in)));
+			} else {
+				if (first >= 0)
+					in.unread(first);
+				tail = Base64.getDecoder().wrap(new UnshiftInputStream(Base64.getDecoder().wrap(in)));
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * The middle stage of the pipeline. It decodes UTF-8 characters and
+	 * shifts every character back by its position, like the loop in
+	 * {@link Encryptor#decrypt(String)}.
+	 */
+	private static final class UnshiftInputStream extends InputStream {
+
+		private final InputStream in;
+		private final byte[] buffer = new byte[16 * 1024];
+		private int position;
+		private int count;
+
+		/**
+		 * The position of the next character.
+		 */
+		private long index;
+
+		/**
+		 * The low half of a surrogate pair waiting to be returned, or -1.
+		 */
+		private int pendingLow = -1;
+
+		private UnshiftInputStream(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int c;
+			if (pendingLow >= 0) {
+				c = pendingLow;
+				pendingLow = -1;
+			} else {
+				int codePoint = readCodePoint();
+				if (codePoint < 0)
+					return -1;
+
+				if (codePoint >= 0x10000) {
+					c = Character.highSurrogate(codePoint);
+					pendingLow = Character.lowSurrogate(codePoint);
+				} else {
+					c = codePoint;
+				}
+			}
+			return (char) (c - (index++ + 1)) & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+
+			int n = 0;
+			while (n < len) {
+				// Only block for the first byte
+				if (n > 0 && pendingLow < 0 && position == count && in.available() <= 0)
+					break;
+
+				int c = read();
+				if (c < 0)
+					break;
+				b[off + n++] = (byte) c;
+			}
+			return n == 0 ? -1 : n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		/**
+		 * Decodes the next UTF-8 character. Malformed bytes decode to
+		 * U+FFFD, as they do in {@code new String(bytes)}.
+		 */
+		private int readCodePoint() throws IOException {
+			int b = next();
+			if (b < 0)
+				return -1;
+			if (b < 0x80)
+				return b;
+
+			int length;
+			int codePoint;
+			if (b >= 0xF0 && b < 0xF5) {
+				length = 3;
+				codePoint = b & 0x07;
+			} else if (b >= 0xE0) {
+				length = 2;
+				codePoint = b & 0x0F;
+			} else if (b >= 0xC2) {
+				length = 1;
+				codePoint = b & 0x1F;
+			} else {
+				return 0xFFFD;
+			}
+
+			for (int i = 0; i < length; i++) {
+				int cont = peek();
+				if (cont < 0 || (cont & 0xC0) != 0x80)
+					return 0xFFFD;
+				next();
+				codePoint = codePoint << 6 | cont & 0x3F;
+			}
+			return codePoint;
+		}
+
+		private int next() throws IOException {
+			int b = peek();
+			if (b >= 0)
+				position++;
+			return b;
+		}
+
+		private int peek() throws IOException {
+			if (position == count) {
+				count = in.read(buffer, 0, buffer.length);
+				position = 0;
+				if (count <= 0) {
+					count = 0;
+					return -1;
+				}
+			}
+			return buffer[position] & 0xFF;
+		}
+	}
+
+	/**
+	 * The middle stage of the pipeline in the
+	 * {@link Encryptor.Format#MODULAR} format. It shifts every Base64
+	 * character back by its position within the alphabet.
+	 */
+	private static final class ModularUnshiftInputStream extends InputStream {
+
+		private final InputStream in;
+
+		/**
+		 * The position of the next character.
+		 */
+		private long position;
+
+		private ModularUnshiftInputStream(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = in.read();
+			if (b < 0)
+				return -1;
+			return unshift((byte) b);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = in.read(b, off, len);
+			for (int i = off; i < off + n; i++)
+				b[i] = (byte) unshift(b[i]);
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		private int unshift(byte b) throws IOException {
+			try {
+				return Encryptor.unshift(b, position++) & 0xFF;
+			} catch (IllegalArgumentException ex) {
+				throw new IOException(ex.getMessage(), ex);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,272 @@
+package liam.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Base64;
+
+/**
+ * This stream encrypts everything written to it with the same scheme as
+ * {@link Encryptor#encrypt(String, Encryptor.Format)}, in a single pass
+ * and without holding the data in memory. Writing the UTF-8 bytes of a
+ * String and closing the stream produces the same bytes as encrypting
+ * the String in the same format (for the legacy format, on a platform
+ * whose default charset is UTF-8).<br><br>
+ *
+ * The stream must be closed to write the end of the data.<br><br>
+ *
+ * The {@link Encryptor.Format#LEGACY} format can't hold data longer than
+ * about 40 KB, so writing more than that in it throws an IOException
+ * rather than writing data which couldn't be decrypted.
+ *
+ * @author Liam
+ */
+public class EncryptorOutputStream extends OutputStream {
+
+	/**
+	 * The first stage of the pipeline: the first Base64 encoding.
+	 */
+	private final OutputStream head;
+
+	/**
+	 * This constructor will create a stream which writes encrypted data
+	 * to another stream, in a format.
+	 *
+	 * @param out The stream to write encrypted data to.
+	 * @param format The format to encrypt in.
+	 */
+	public EncryptorOutputStream(OutputStream out, Encryptor.Format format) {
+		if (format == Encryptor.Format.MODULAR)
+			head = Base64.getEncoder().wrap(new ModularShiftOutputStream(Base64.getEncoder().wrap(new HeaderOutputStream(out))));
+		else
+			head = Base64.getEncoder().wrap(new ShiftOutputStream(Base64.getEncoder().wrap(out)));
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		head.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		head.write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		head.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		head.close();
+	}
+
+	/**
+	 * The middle stage of the pipeline. It shifts every Base64 character
+	 * by its position and writes the shifted characters as UTF-8, like
+	 * {@code new String(chArray).getBytes()} in {@link Encryptor}.
+	 */
+	private static final class ShiftOutputStream extends OutputStream {
+
+		private final OutputStream out;
+		private final byte[] buffer = new byte[16 * 1024];
+		private int count;
+
+		/**
+		 * The position of the next character.
+		 */
+		private long position;
+
+		/**
+		 * A high surrogate waiting to see if the next character completes
+		 * a pair, or -1.
+		 */
+		private int pendingHigh = -1;
+
+		private ShiftOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			char c = (char) ((b & 0xFF) + position + 1);
+			position++;
+
+			if (pendingHigh >= 0) {
+				int high = pendingHigh;
+				pendingHigh = -1;
+				if (Character.isLowSurrogate(c)) {
+					writeCodePoint(Character.toCodePoint((char) high, c));
+					return;
+				}
+				tooLong();
+			}
+
+			if (Character.isHighSurrogate(c))
+				pendingHigh = c;
+			else if (Character.isLowSurrogate(c))
+				tooLong();
+			else
+				writeCodePoint(c);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			for (int i = off; i < off + len; i++)
+				write(b[i]);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.write(buffer, 0, count);
+			count = 0;
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				if (pendingHigh >= 0) {
+					pendingHigh = -1;
+					tooLong();
+				}
+				out.write(buffer, 0, count);
+				count = 0;
+			} finally {
+				out.close();
+			}
+		}
+
+		/**
+		 * A lone surrogate can't be written as UTF-8, and String.getBytes
+		 * would write a '?' in its place, losing the character. The data
+		 * couldn't be decrypted, so it isn't written.
+		 */
+		private void tooLong() throws IOException {
+			throw new IOException("Data too long for the legacy format at character " + position
+					+ "; use Encryptor.Format.MODULAR");
+		}
+
+		private void writeCodePoint(int c) throws IOException {
+			if (c < 0x80) {
+				put(c);
+			} else if (c < 0x800) {
+				put(0xC0 | c >> 6);
+				put(0x80 | c & 0x3F);
+			} else if (c < 0x10000) {
+				put(0xE0 | c >> 12);
+				put(0x80 | c >> 6 & 0x3F);
+				put(0x80 | c & 0x3F);
+			} else {
+				put(0xF0 | c >> 18);
+				put(0x80 | c >> 12 & 0x3F);
+				put(0x80 | c >> 6 & 0x3F);
+				put(0x80 | c & 0x3F);
+			}
+		}
+
+		private void put(int b) throws IOException {
+			if (count == buffer.length) {
+				out.write(buffer, 0, count);
+				count = 0;
+			}
+			buffer[count++] = (byte) b;
+		}
+	}
+
+	/**
+	 * The middle stage of the pipeline in the
+	 * {@link Encryptor.Format#MODULAR} format. It shifts every Base64
+	 * character by its position within the alphabet.
+	 */
+	private static final class ModularShiftOutputStream extends OutputStream {
+
+		private final OutputStream out;
+		private final byte[] buffer = new byte[16 * 1024];
+
+		/**
+		 * The position of the next character.
+		 */
+		private long position;
+
+		private ModularShiftOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(Encryptor.shift((byte) b, position++));
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				int n = Math.min(len, buffer.length);
+				for (int i = 0; i < n; i++)
+					buffer[i] = Encryptor.shift(b[off + i], position++);
+				out.write(buffer, 0, n);
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the {@link Encryptor.Format#MODULAR} header before anything
+	 * else, including when nothing else is written.
+	 */
+	private static final class HeaderOutputStream extends OutputStream {
+
+		private final OutputStream out;
+		private boolean written;
+
+		private HeaderOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			writeHeader();
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			writeHeader();
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			writeHeader();
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				writeHeader();
+			} finally {
+				out.close();
+			}
+		}
+
+		private void writeHeader() throws IOException {
+			if (!written) {
+				written = true;
+				out.write(Encryptor.MODULAR_HEADER);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package liam.util;
+
+import java.text.DecimalFormat;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * This class holds the formatters used by {@link ConsoleProgram}, so they
+ * aren't created on every call. {@link DateTimeFormatter}s are immutable
+ * and shared. {@link DecimalFormat}s aren't thread-safe, so each thread
+ * keeps its own, one for every number of decimal places it has used.
+ *
+ * @author Liam
+ */
+final class Formatters {
+
+	/**
+	 * The formatter for dates in the format dd/MM/uuuu.
+	 */
+	static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/uuuu");
+
+	/**
+	 * The formatter for times in the format HH:mm.
+	 */
+	static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+	/**
+	 * Formatters for more decimal places than this aren't cached.
+	 */
+	private static final int MAX_CACHED_DP = 16;
+
+	private static final ThreadLocal<DecimalFormat[]> DECIMAL_FORMATS = ThreadLocal
+			.withInitial(() -> new DecimalFormat[MAX_CACHED_DP + 1]);
+
+	/**
+	 * Class shouldn't be instantiated.
+	 */
+	private Formatters() {
+	}
+
+	/**
+	 * This method will return a formatter which rounds to a number of
+	 * decimal places, for use on the calling thread only.
+	 *
+	 * @param dp The decimal places, which must not be negative.
+	 * @return The formatter.
+	 */
+	static DecimalFormat decimal(int dp) {
+		if (dp > MAX_CACHED_DP)
+			return new DecimalFormat(pattern(dp));
+
+		DecimalFormat[] formats = DECIMAL_FORMATS.get();
+		DecimalFormat format = formats[dp];
+		if (format == null)
+			format = formats[dp] = new DecimalFormat(pattern(dp));
+		return format;
+	}
+
+	private static String pattern(int dp) {
+		return dp == 0 ? "0" : "0." + "0".repeat(dp);
+	}
+
+}
@@ -0,0 +1,273 @@
+package liam.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class reads lines from a stream on its own thread and queues them
+ * for {@link ConsoleProgram}, so that input can be waited for with a
+ * timeout or asynchronously.<br><br>
+ *
+ * A line goes to the oldest waiting future which hasn't been cancelled,
+ * or into a bounded queue if nobody is waiting. Completing and
+ * cancelling a future can't both succeed, so a line is never lost to a
+ * reader which gave up. When the queue is full the pump stops reading
+ * until a line is taken.
+ *
+ * @author Liam
+ */
+final class InputPump implements Runnable {
+
+	/**
+	 * The default number of lines which can be queued.
+	 */
+	static final int DEFAULT_CAPACITY = 1024;
+
+	private final BufferedReader in;
+	private final int capacity;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+	private final ArrayDeque<String> lines = new ArrayDeque<>();
+	private final ArrayDeque<CompletableFuture<String>> waiters = new ArrayDeque<>();
+	private boolean ended;
+	private IOException failure;
+
+	/**
+	 * This constructor will create a pump for a stream.
+	 *
+	 * @param in The stream to read lines from.
+	 * @param capacity The number of lines which can be queued.
+	 */
+	InputPump(InputStream in, int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		this.in = new BufferedReader(new InputStreamReader(in));
+		this.capacity = capacity;
+	}
+
+	/**
+	 * This method will start reading on a thread from a factory.
+	 *
+	 * @param factory The factory to create the thread with.
+	 */
+	void start(ThreadFactory factory) {
+		Thread thread = factory.newThread(this);
+		if (thread == null)
+			throw new IllegalStateException("Thread factory didn't create a thread");
+		thread.start();
+	}
+
+	@Override
+	public void run() {
+		try {
+			String line;
+			while ((line = in.readLine()) != null)
+				deliver(line);
+		} catch (IOException ex) {
+			failure = ex;
+		} catch (InterruptedException ex) {
+			failure = new InterruptedIOException("Input pump was interrupted");
+		} finally {
+			end();
+		}
+	}
+
+	/**
+	 * This method will return a future which is completed with the next
+	 * line. At the end of input it completes with a
+	 * {@link NoSuchElementException}. Cancelling it leaves the line for
+	 * the next reader.
+	 *
+	 * @return The future line.
+	 */
+	CompletableFuture<String> next() {
+		lock.lock();
+		try {
+			String line = lines.poll();
+			if (line != null) {
+				notFull.signal();
+				return CompletableFuture.completedFuture(line);
+			}
+			if (ended)
+				return CompletableFuture.failedFuture(endOfInput());
+
+			CompletableFuture<String> waiter = new CompletableFuture<>();
+			waiters.add(waiter);
+			waiter.whenComplete((l, ex) -> {
+				if (ex instanceof CancellationException)
+					removeWaiter(waiter);
+			});
+			return waiter;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * This method will wait for the next line.
+	 *
+	 * @param timeout The longest time to wait, or null to wait forever.
+	 * @return The line, or null if the timeout passed or the thread was
+	 * interrupted (which leaves its interrupt status set).
+	 * @throws NoSuchElementException If input has ended.
+	 */
+	String poll(Duration timeout) {
+		CompletableFuture<String> future = next();
+		try {
+			if (timeout == null)
+				return future.get();
+			return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException ex) {
+			return cancel(future);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return cancel(future);
+		} catch (ExecutionException ex) {
+			throw rethrow(ex.getCause());
+		}
+	}
+
+	/**
+	 * This method will return a stream of the lines, each ending with
+	 * '\n', for readers which block.
+	 *
+	 * @return The stream.
+	 */
+	InputStream stream() {
+		return new LineInputStream();
+	}
+
+	/**
+	 * Cancels a future, or returns its line if it was completed first.
+	 */
+	private static String cancel(CompletableFuture<String> future) {
+		if (future.cancel(false))
+			return null;
+		try {
+			return future.join();
+		} catch (CompletionException ex) {
+			throw rethrow(ex.getCause());
+		}
+	}
+
+	private static RuntimeException rethrow(Throwable cause) {
+		if (cause instanceof RuntimeException)
+			return (RuntimeException) cause;
+		return new IllegalStateException(cause);
+	}
+
+	private void deliver(String line) throws InterruptedException {
+		lock.lock();
+		try {
+			while (true) {
+				CompletableFuture<String> waiter;
+				while ((waiter = waiters.poll()) != null)
+					if (waiter.complete(line))
+						return;
+
+				if (lines.size() < capacity) {
+					lines.add(line);
+					return;
+				}
+				notFull.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void end() {
+		lock.lock();
+		try {
+			ended = true;
+			CompletableFuture<String> waiter;
+			while ((waiter = waiters.poll()) != null)
+				waiter.completeExceptionally(endOfInput());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private RuntimeException endOfInput() {
+		if (failure != null)
+			return new UncheckedIOException(failure);
+		return new NoSuchElementException("No line found");
+	}
+
+	private void removeWaiter(CompletableFuture<String> waiter) {
+		lock.lock();
+		try {
+			waiters.remove(waiter);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads the queued lines as bytes.
+	 */
+	private final class LineInputStream extends InputStream {
+
+		private byte[] line = new byte[0];
+		private int position;
+
+		@Override
+		public int read() throws IOException {
+			if (position == line.length && !nextLine())
+				return -1;
+			return line[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (position == line.length && !nextLine())
+				return -1;
+
+			int n = Math.min(len, line.length - position);
+			System.arraycopy(line, position, b, off, n);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return line.length - position;
+		}
+
+		private boolean nextLine() throws IOException {
+			String s;
+			try {
+				s = poll(null);
+			} catch (NoSuchElementException ex) {
+				return false;
+			} catch (UncheckedIOException ex) {
+				throw ex.getCause();
+			}
+			if (s == null)
+				throw new InterruptedIOException("Interrupted while waiting for input");
+
+			line = (s + "\n").getBytes();
+			position = 0;
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package liam.util;
+
+/**
+ * This class is a {@link ValueHolder} for an int, which is stored without
+ * boxing, so it can be used as a counter inside a lambda without creating
+ * a new Integer on every update.
+ * 
+ * For example:
+ * 
+ * <pre>
+ * {@code
+ * 	IntHolder total = new IntHolder();
+ * 	list.forEach(item -> total.add(item.size()));
+ * }
+ * </pre>
+ * 
+ * Like {@link ValueHolder}, it isn't thread-safe. For a counter updated
+ * from many threads, such as inside a parallel stream, use a
+ * {@link StripedLongHolder}.
+ * 
+ * @author Liam
+ */
+public final class IntHolder {
+
+	/**
+	 * The value.
+	 */
+	private int value;
+
+	/**
+	 * This contructor is used if the value is to start at 0.
+	 */
+	public IntHolder() {
+	}
+
+	/**
+	 * This constructor is used if an initial value is to be specified upon
+	 * instantiation.
+	 * 
+	 * @param value
+	 *            The initial value to set.
+	 */
+	public IntHolder(int value) {
+		this.value = value;
+	}
+
+	/**
+	 * This is called if the value is to be set or changed.
+	 * 
+	 * @param value
+	 *            The value to set.
+	 */
+	public void set(int value) {
+		this.value = value;
+	}
+
+	/**
+	 * This is called if the value is to be accessed.
+	 * 
+	 * @return The present value.
+	 */
+	public int get() {
+		return value;
+	}
+
+	/**
+	 * This is called to add to the value.
+	 * 
+	 * @param delta
+	 *            The amount to add.
+	 * @return The new value.
+	 */
+	public int add(int delta) {
+		return value += delta;
+	}
+
+	/**
+	 * This is called to add one to the value.
+	 * 
+	 * @return The new value.
+	 */
+	public int increment() {
+		return ++value;
+	}
+
+	/**
+	 * This is called to subtract one from the value.
+	 * 
+	 * @return The new value.
+	 */
+	public int decrement() {
+		return --value;
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(value);
+	}
+
+}
@@ -0,0 +1,73 @@
+package liam.util;
+
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * This interface supplies the keys used by an {@link AesGcmEncryptor}.
+ * Every key has an id which is written with the encrypted data, so keys
+ * can be rotated: new data is encrypted with the current key, and old
+ * data is decrypted with whichever key it was encrypted with.
+ *
+ * @author Liam
+ */
+public interface KeyProvider {
+
+	/**
+	 * This method will return the id of the key used to encrypt new data.
+	 *
+	 * @return The id of the current key.
+	 */
+	int currentKeyId();
+
+	/**
+	 * This method will return the key with an id.
+	 *
+	 * @param keyId The id of the key.
+	 * @return The key.
+	 * @throws GeneralSecurityException If there is no key with the id.
+	 */
+	SecretKey key(int keyId) throws GeneralSecurityException;
+
+	/**
+	 * This method will create a provider with a single key, whose id is 0.
+	 *
+	 * @param key The AES key.
+	 * @return The provider.
+	 */
+	static KeyProvider of(SecretKey key) {
+		return new KeyProvider() {
+
+			@Override
+			public int currentKeyId() {
+				return 0;
+			}
+
+			@Override
+			public SecretKey key(int keyId) throws GeneralSecurityException {
+				if (keyId != 0)
+					throw new GeneralSecurityException("Unknown key id: " + keyId);
+				return key;
+			}
+		};
+	}
+
+	/**
+	 * This method will generate a new random 256-bit AES key.
+	 *
+	 * @return The key.
+	 */
+	static SecretKey generateKey() {
+		try {
+			KeyGenerator generator = KeyGenerator.getInstance("AES");
+			generator.init(256);
+			return generator.generateKey();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("AES is not available", ex);
+		}
+	}
+
+}
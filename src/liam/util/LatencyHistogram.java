@@ -0,0 +1,150 @@
+package liam.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts how often values (normally latencies in nanoseconds)
+ * fall into buckets, so percentiles can be read off without keeping every
+ * value. Many threads can record into it at once without locking.<br><br>
+ *
+ * Like HdrHistogram, the buckets are log-linear: every power of two is
+ * split into {@value #SUB_BUCKETS} equal buckets, so a value is placed to
+ * within about 3% whatever its size, and every positive long fits in
+ * under 2,000 counters. Values below {@value #SUB_BUCKETS} are exact.<br><br>
+ *
+ * Reading the histogram while values are recorded gives a result which
+ * may be missing some of them, but is never inconsistent with itself.
+ *
+ * @author Liam
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+
+	/**
+	 * The number of buckets each power of two is split into.
+	 */
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Enough buckets for every value up to {@link Long#MAX_VALUE}.
+	 */
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * This method will record a value. Negative values are recorded as 0.
+	 *
+	 * @param value The value.
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts.getAndIncrement(index(value));
+		total.add(value);
+
+		long m = max.get();
+		while (value > m && !max.weakCompareAndSetVolatile(m, value))
+			m = max.get();
+	}
+
+	/**
+	 * @return The number of values recorded
+	 */
+	public long count() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			count += counts.get(i);
+		return count;
+	}
+
+	/**
+	 * @return The mean of the values recorded, or 0 if there are none
+	 */
+	public double mean() {
+		long count = count();
+		return count == 0 ? 0 : total.sum() / (double) count;
+	}
+
+	/**
+	 * @return The largest value recorded, or 0 if there are none
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * This method will return the value which a percentage of the values
+	 * recorded are at or below. The value is the top of its bucket, so it
+	 * is never less than the true percentile.
+	 *
+	 * @param percentile The percentage, from 0 to 100.
+	 * @return The value, or 0 if there are none.
+	 */
+	public long percentile(double percentile) {
+		if (!(percentile >= 0 && percentile <= 100))
+			throw new IllegalArgumentException("Percentile must be from 0 to 100: " + percentile);
+
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			count += snapshot[i] = counts.get(i);
+		if (count == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank)
+				return Math.min(highestValue(i), max());
+		}
+		return max();
+	}
+
+	/**
+	 * This method will clear the histogram. Values recorded at the same
+	 * time may be lost.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+		total.reset();
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LatencyHistogram[count=%d, mean=%.1f, p50=%d, p99=%d, max=%d]", count(), mean(),
+				percentile(50), percentile(99), max());
+	}
+
+	/**
+	 * Returns the bucket of a value. Values below SUB_BUCKETS have their
+	 * own bucket; above that, the top SUB_BUCKET_BITS + 1 bits pick the
+	 * bucket, so each power of two has SUB_BUCKETS of them.
+	 */
+	static int index(long value) {
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		if (shift < 0)
+			return (int) value;
+		return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Returns the highest value which is put in a bucket.
+	 */
+	static long highestValue(int index) {
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		if (shift < 0)
+			return index;
+		long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+}
@@ -0,0 +1,197 @@
+package liam.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * This class is a counterpart to {@link ValueHolder} whose value is
+ * computed by a {@link Supplier} the first time it is needed, and then
+ * kept. However
+ * many threads ask for it at once, the supplier is only called once.
+ *
+ * For example:
+ *
+ * <pre>
+ * {@code
+ * 	LazyValueHolder<Config> config = new LazyValueHolder<>(Config::load);
+ * 	...
+ * 	config.get().getName(); // Loads the config the first time
+ * }
+ * </pre>
+ *
+ * Once the value has been computed, getting it is a single volatile read
+ * with no locking. Until then, threads wait on a lock while one of them
+ * computes it. If the supplier throws, the exception is passed on and
+ * the next call tries again.
+ *
+ * The value can also be refreshed: once it is older than a set time, the
+ * next call starts computing a new value on an executor and returns the
+ * old one in the meantime, so callers never wait for a refresh. Only one
+ * refresh runs at a time, and if it fails (or the executor won't run it)
+ * the old value is kept until the time has passed again.
+ *
+ * @author Liam
+ * @param <T>
+ *            The type for the value held.
+ */
+public final class LazyValueHolder<T> {
+
+	private static final VarHandle ENTRY;
+
+	static {
+		try {
+			ENTRY = MethodHandles.lookup().findVarHandle(LazyValueHolder.class, "entry", Entry.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final Supplier<? extends T> supplier;
+	private final long refreshNanos;
+	private final Executor executor;
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+
+	/**
+	 * The value and when it was computed, or null if it hasn't been.
+	 */
+	private volatile Entry<T> entry;
+
+	/**
+	 * This constructor is used if the value is to be computed once and
+	 * kept until {@link #reset()}.
+	 *
+	 * @param supplier
+	 *            The supplier which computes the value.
+	 */
+	public LazyValueHolder(Supplier<? extends T> supplier) {
+		this.supplier = supplier;
+		this.refreshNanos = 0;
+		this.executor = null;
+	}
+
+	/**
+	 * This constructor is used if the value is to be refreshed in the
+	 * background once it is older than a set time.
+	 *
+	 * @param supplier
+	 *            The supplier which computes the value.
+	 * @param refreshAfter
+	 *            How old the value can get before it is refreshed.
+	 * @param executor
+	 *            The executor to refresh the value on.
+	 */
+	public LazyValueHolder(Supplier<? extends T> supplier, Duration refreshAfter, Executor executor) {
+		if (refreshAfter.isNegative() || refreshAfter.isZero())
+			throw new IllegalArgumentException("Refresh time must be positive: " + refreshAfter);
+		this.supplier = supplier;
+		this.refreshNanos = refreshAfter.toNanos();
+		this.executor = executor;
+	}
+
+	/**
+	 * This is called if the value is to be accessed. It is computed if it
+	 * hasn't been, and a refresh is started if it is too old.
+	 *
+	 * @return The present value.
+	 */
+	public T get() {
+		Entry<T> e = entry;
+		if (e == null)
+			return initialize().value;
+
+		if (refreshNanos > 0 && System.nanoTime() - e.time >= refreshNanos)
+			refresh(e);
+		return e.value;
+	}
+
+	/**
+	 * This is used to check whether the value has been computed.
+	 *
+	 * @return Whether the value has been computed.
+	 */
+	public boolean isInitialized() {
+		return entry != null;
+	}
+
+	/**
+	 * This is called to throw away the value, so the next call to
+	 * {@link #get()} computes it again. A refresh which is running is
+	 * thrown away when it finishes.
+	 */
+	public synchronized void reset() {
+		entry = null;
+	}
+
+	@Override
+	public String toString() {
+		Entry<T> e = entry;
+		return e == null ? "LazyValueHolder[not initialized]" : String.valueOf(e.value);
+	}
+
+	private synchronized Entry<T> initialize() {
+		Entry<T> e = entry;
+		if (e == null)
+			entry = e = new Entry<>(supplier.get(), System.nanoTime());
+		return e;
+	}
+
+	/**
+	 * Starts refreshing the value, unless a refresh is already running.
+	 */
+	private void refresh(Entry<T> old) {
+		if (!refreshing.compareAndSet(false, true))
+			return;
+
+		// Another refresh may have replaced the value since it was read
+		if (entry != old) {
+			refreshing.set(false);
+			return;
+		}
+
+		try {
+			executor.execute(() -> {
+				try {
+					Entry<T> fresh = new Entry<>(supplier.get(), System.nanoTime());
+					ENTRY.compareAndSet(this, old, fresh);
+				} catch (RuntimeException ex) {
+					ex.printStackTrace();
+
+					// Keep the old value, and try again once the refresh time has passed
+					ENTRY.compareAndSet(this, old, new Entry<>(old.value, System.nanoTime()));
+				} finally {
+					refreshing.set(false);
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			ex.printStackTrace();
+
+			// The caller still gets the old value, and the refresh is tried
+			// again once the refresh time has passed
+			ENTRY.compareAndSet(this, old, new Entry<>(old.value, System.nanoTime()));
+			refreshing.set(false);
+		} catch (RuntimeException ex) {
+			refreshing.set(false);
+			throw ex;
+		}
+	}
+
+	/**
+	 * A value and when it was computed.
+	 */
+	private static final class Entry<T> {
+
+		private final T value;
+		private final long time;
+
+		private Entry(T value, long time) {
+			this.value = value;
+			this.time = time;
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package liam.util;
+
+/**
+ * This class is a counterpart to {@link ValueHolder} for a long, which is
+ * stored without boxing, so it can be used as a counter inside a lambda without creating
+ * a new Long on every update.
+ * 
+ * For example:
+ * 
+ * <pre>
+ * {@code
+ * 	LongHolder total = new LongHolder();
+ * 	list.forEach(item -> total.add(item.size()));
+ * }
+ * </pre>
+ * 
+ * Like {@link ValueHolder}, it isn't thread-safe. For a counter updated
+ * from many threads, such as inside a parallel stream, use a
+ * {@link StripedLongHolder}.
+ * 
+ * @author Liam
+ */
+public final class LongHolder {
+
+	/**
+	 * The value.
+	 */
+	private long value;
+
+	/**
+	 * This contructor is used if the value is to start at 0.
+	 */
+	public LongHolder() {
+	}
+
+	/**
+	 * This constructor is used if an initial value is to be specified upon
+	 * instantiation.
+	 * 
+	 * @param value
+	 *            The initial value to set.
+	 */
+	public LongHolder(long value) {
+		this.value = value;
+	}
+
+	/**
+	 * This is called if the value is to be set or changed.
+	 * 
+	 * @param value
+	 *            The value to set.
+	 */
+	public void set(long value) {
+		this.value = value;
+	}
+
+	/**
+	 * This is called if the value is to be accessed.
+	 * 
+	 * @return The present value.
+	 */
+	public long get() {
+		return value;
+	}
+
+	/**
+	 * This is called to add to the value.
+	 * 
+	 * @param delta
+	 *            The amount to add.
+	 * @return The new value.
+	 */
+	public long add(long delta) {
+		return value += delta;
+	}
+
+	/**
+	 * This is called to add one to the value.
+	 * 
+	 * @return The new value.
+	 */
+	public long increment() {
+		return ++value;
+	}
+
+	/**
+	 * This is called to subtract one from the value.
+	 * 
+	 * @return The new value.
+	 */
+	public long decrement() {
+		return --value;
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(value);
+	}
+
+}
@@ -0,0 +1,101 @@
+package liam.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class holds the metrics for the operations the library times,
+ * such as {@link liam.collections.Deck#shuffle()} and
+ * {@link liam.io.ObjectIO#read(java.nio.file.Path)}.<br><br>
+ *
+ * Metrics are off unless the program is started with
+ * <code>-Dliam.metrics=true</code>. Whether they are on is a constant, so
+ * when they are off the JIT compiles the timing out of every operation.
+ * When they are on, each operation is counted and timed, shown over JMX
+ * under <code>liam:type=Operation</code>, and recorded as a
+ * <code>liam.Operation</code> Flight Recorder event when a recording has
+ * the event switched on (for example
+ * <code>-XX:StartFlightRecording</code>).
+ *
+ * @author Liam
+ */
+public final class Metrics {
+
+	/**
+	 * Whether metrics are recorded, set by the system property
+	 * <code>liam.metrics</code>.
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean("liam.metrics");
+
+	private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+
+	/**
+	 * Class shouldn't be instantiated.
+	 */
+	private Metrics() {
+	}
+
+	/**
+	 * This method will return the metrics for an operation, creating them
+	 * the first time. New metrics are registered with JMX if metrics are
+	 * enabled.
+	 *
+	 * @param name The name of the operation, such as "Deck.shuffle".
+	 * @return The metrics.
+	 */
+	public static OperationMetrics operation(String name) {
+		return OPERATIONS.computeIfAbsent(name, n -> {
+			OperationMetrics operation = new OperationMetrics(n);
+			if (ENABLED)
+				register(operation);
+			return operation;
+		});
+	}
+
+	/**
+	 * This method will return the metrics for every operation so far.
+	 *
+	 * @return The metrics, by name.
+	 */
+	public static Map<String, OperationMetrics> operations() {
+		return Collections.unmodifiableMap(new ConcurrentSkipListMap<>(OPERATIONS));
+	}
+
+	/**
+	 * This method will clear the metrics for every operation.
+	 */
+	public static void reset() {
+		for (OperationMetrics operation : OPERATIONS.values())
+			operation.reset();
+	}
+
+	/**
+	 * This method will return the metrics for every operation which has
+	 * run, one per line.
+	 *
+	 * @return The report.
+	 */
+	public static String report() {
+		StringBuilder sb = new StringBuilder();
+		for (OperationMetrics operation : operations().values())
+			if (operation.getCount() > 0)
+				sb.append(operation).append(System.lineSeparator());
+		return sb.toString();
+	}
+
+	private static void register(OperationMetrics operation) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(operation,
+					new ObjectName("liam:type=Operation,name=" + ObjectName.quote(operation.getName())));
+		} catch (JMException ex) {
+			ex.printStackTrace();
+		}
+	}
+
+}
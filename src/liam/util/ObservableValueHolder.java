@@ -0,0 +1,266 @@
+package liam.util;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * This class is a thread-safe counterpart to {@link ValueHolder} which
+ * tells subscribers when its value is set, so they don't have to keep
+ * checking it.
+ *
+ * For example:
+ *
+ * <pre>
+ * {@code
+ * 	ObservableValueHolder<Config> config = new ObservableValueHolder<>(Config.load());
+ * 	config.subscribe(c -> println("Config changed to " + c));
+ * 	config.set(Config.load());
+ * }
+ * </pre>
+ *
+ * Subscribers are told on an executor, so setting the value never waits
+ * for them. If the value is set again before a subscriber has been told,
+ * it is only told the latest value: a slow subscriber skips values rather
+ * than falling behind. A subscriber is only ever told one value at a
+ * time, in the order they were set.
+ *
+ * Every set also increases a version number, so a component can keep the
+ * version it last saw and cheaply check {@link #hasChangedSince(long)}.
+ *
+ * @author Liam
+ * @param <T>
+ *            The type for the value held.
+ */
+public final class ObservableValueHolder<T> {
+
+	/**
+	 * A subscription to a holder, which can be closed to stop being told
+	 * about changes.
+	 */
+	public interface Subscription extends AutoCloseable {
+
+		/**
+		 * This is called to stop being told about changes. A change which
+		 * is being delivered may still arrive.
+		 */
+		@Override
+		void close();
+	}
+
+	/**
+	 * The value and its version, which are read together.
+	 */
+	private volatile State<T> state;
+
+	private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * This contructor is used if no initial value is to be specified upon
+	 * instantiation.
+	 */
+	public ObservableValueHolder() {
+		this(null);
+	}
+
+	/**
+	 * This constructor is used if an initial value is to be specified upon
+	 * instantiation. It has version 0.
+	 *
+	 * @param value
+	 *            The initial value to set.
+	 */
+	public ObservableValueHolder(T value) {
+		state = new State<>(value, 0);
+	}
+
+	/**
+	 * This is used to check whether there is a value set.
+	 *
+	 * @return Whether value is not null.
+	 */
+	public boolean hasValue() {
+		return state.value != null;
+	}
+
+	/**
+	 * This is called if the value is to be set or changed. The version is
+	 * increased and subscribers are told, even if the value is the same.
+	 * If a subscriber's executor won't take the delivery, the others are
+	 * still told and the first exception is thrown afterwards.
+	 *
+	 * @param value
+	 *            The value to set.
+	 */
+	public void set(T value) {
+		synchronized (this) {
+			state = new State<>(value, state.version + 1);
+		}
+
+		RuntimeException failure = null;
+		for (Subscriber subscriber : subscribers) {
+			try {
+				subscriber.changed();
+			} catch (RuntimeException ex) {
+				if (failure == null)
+					failure = ex;
+				else
+					failure.addSuppressed(ex);
+			}
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * This is called if the value is to be accessed.
+	 *
+	 * @return The present value.
+	 */
+	public T get() {
+		return state.value;
+	}
+
+	/**
+	 * This is called to get the version of the value, which increases
+	 * every time it is set.
+	 *
+	 * @return The present version.
+	 */
+	public long version() {
+		return state.version;
+	}
+
+	/**
+	 * This is used to check whether the value has been set since a
+	 * version.
+	 *
+	 * @param version
+	 *            A version returned by {@link #version()}.
+	 * @return Whether the value has been set since.
+	 */
+	public boolean hasChangedSince(long version) {
+		return state.version != version;
+	}
+
+	/**
+	 * This is called to be told about changes to the value on the common
+	 * fork-join pool.
+	 *
+	 * @param listener
+	 *            The listener to give new values to.
+	 * @return The subscription, which can be closed to stop.
+	 */
+	public Subscription subscribe(Consumer<? super T> listener) {
+		return subscribe(listener, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * This is called to be told about changes to the value on an
+	 * executor, which can be one with a thread per task. Only changes
+	 * made after subscribing are given, so the present value should be
+	 * read with {@link #get()} after subscribing.
+	 *
+	 * @param listener
+	 *            The listener to give new values to.
+	 * @param executor
+	 *            The executor to call the listener on.
+	 * @return The subscription, which can be closed to stop.
+	 */
+	public Subscription subscribe(Consumer<? super T> listener, Executor executor) {
+		Subscriber subscriber = new Subscriber(listener, executor, state.version);
+		subscribers.add(subscriber);
+		return subscriber;
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(get());
+	}
+
+	/**
+	 * A value and its version.
+	 */
+	private static final class State<T> {
+
+		private final T value;
+		private final long version;
+
+		private State(T value, long version) {
+			this.value = value;
+			this.version = version;
+		}
+	}
+
+	/**
+	 * A subscriber which is told about changes one at a time. The number
+	 * of changes not yet looked at is counted, and only the change which
+	 * takes it from 0 starts a delivery, which keeps delivering the latest
+	 * value until it has caught up.
+	 */
+	private final class Subscriber implements Subscription, Runnable {
+
+		private final Consumer<? super T> listener;
+		private final Executor executor;
+		private final AtomicInteger pending = new AtomicInteger();
+		private volatile boolean closed;
+
+		/**
+		 * The version last given to the listener. Only used by the
+		 * delivery which is running.
+		 */
+		private long delivered;
+
+		private Subscriber(Consumer<? super T> listener, Executor executor, long version) {
+			this.listener = listener;
+			this.executor = executor;
+			this.delivered = version;
+		}
+
+		private void changed() {
+			if (pending.getAndIncrement() == 0)
+				deliver();
+		}
+
+		private void deliver() {
+			try {
+				executor.execute(this);
+			} catch (RuntimeException ex) {
+				pending.set(0);
+				throw ex;
+			}
+		}
+
+		@Override
+		public void run() {
+			int seen;
+			do {
+				seen = pending.get();
+				State<T> s = state;
+				if (!closed && s.version > delivered) {
+					delivered = s.version;
+					try {
+						listener.accept(s.value);
+					} catch (RuntimeException ex) {
+						ex.printStackTrace();
+					} catch (Error err) {
+						// Hand any changes which came in meanwhile to a new delivery,
+						// so the subscriber isn't left waiting for one which never runs
+						if (pending.addAndGet(-seen) != 0)
+							deliver();
+						throw err;
+					}
+				}
+			} while (pending.addAndGet(-seen) != 0);
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+			subscribers.remove(this);
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+package liam.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The Flight Recorder event for an operation timed by
+ * {@link OperationMetrics}. It is only created when metrics are
+ * {@link Metrics#ENABLED enabled} and a recording has the event
+ * switched on.
+ *
+ * @author Liam
+ */
+@Name("liam.Operation")
+@Label("Operation")
+@Category("Liam")
+@Description("An expensive operation on a Liam collection or object file")
+final class OperationEvent extends jdk.jfr.Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Items")
+	@Description("The number of items shuffled, inserted or taken")
+	long items;
+
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+
+}
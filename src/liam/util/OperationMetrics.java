@@ -0,0 +1,182 @@
+package liam.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.EventType;
+
+/**
+ * This class counts the runs of an operation, such as shuffling a deck or
+ * reading an object file, and records how long they took. Operations get
+ * theirs from {@link Metrics#operation(String)} and time each run:
+ *
+ * <pre>
+ * {@code
+ * 	private static final OperationMetrics SHUFFLE = Metrics.operation("Deck.shuffle");
+ * 	...
+ * 	OperationMetrics.Timer timer = SHUFFLE.start();
+ * 	...
+ * 	if (timer != null)
+ * 		timer.stop(items.size(), 0);
+ * }
+ * </pre>
+ *
+ * When metrics aren't {@link Metrics#ENABLED enabled}, {@link #start()}
+ * returns null, and the JIT removes the timing altogether.
+ *
+ * @author Liam
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+	/**
+	 * The type of {@link OperationEvent}, checked before creating one so
+	 * timers don't allocate an event no recording wants.
+	 */
+	private static final EventType EVENT_TYPE = EventType.getEventType(OperationEvent.class);
+
+	private final String name;
+	private final LongAdder count = new LongAdder();
+	private final LongAdder items = new LongAdder();
+	private final LongAdder bytes = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	OperationMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * This method will start timing a run of the operation.
+	 *
+	 * @return The timer, or null if metrics aren't enabled.
+	 */
+	public Timer start() {
+		return Metrics.ENABLED ? new Timer() : null;
+	}
+
+	/**
+	 * This method will record a run of the operation which was timed
+	 * elsewhere.
+	 *
+	 * @param nanos How long it took.
+	 * @param items The number of items it handled.
+	 * @param bytes The number of bytes it read or wrote.
+	 */
+	public void record(long nanos, long items, long bytes) {
+		count.increment();
+		if (items != 0)
+			this.items.add(items);
+		if (bytes != 0)
+			this.bytes.add(bytes);
+		latency.record(nanos);
+	}
+
+	/**
+	 * @return The histogram of how long the operation took, in
+	 *         nanoseconds
+	 */
+	public LatencyHistogram latency() {
+		return latency;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public long getItems() {
+		return items.sum();
+	}
+
+	@Override
+	public long getBytes() {
+		return bytes.sum();
+	}
+
+	@Override
+	public double getMeanNanos() {
+		return latency.mean();
+	}
+
+	@Override
+	public long getP50Nanos() {
+		return latency.percentile(50);
+	}
+
+	@Override
+	public long getP90Nanos() {
+		return latency.percentile(90);
+	}
+
+	@Override
+	public long getP99Nanos() {
+		return latency.percentile(99);
+	}
+
+	@Override
+	public long getP999Nanos() {
+		return latency.percentile(99.9);
+	}
+
+	@Override
+	public long getMaxNanos() {
+		return latency.max();
+	}
+
+	@Override
+	public void reset() {
+		count.reset();
+		items.reset();
+		bytes.reset();
+		latency.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[count=%d, items=%d, bytes=%d, mean=%.0fns, p50=%dns, p99=%dns, max=%dns]", name,
+				getCount(), getItems(), getBytes(), getMeanNanos(), getP50Nanos(), getP99Nanos(), getMaxNanos());
+	}
+
+	/**
+	 * A run of the operation being timed, which also becomes a Flight
+	 * Recorder event if a recording wants one.
+	 */
+	public final class Timer {
+
+		private final long start;
+		private final OperationEvent event;
+
+		private Timer() {
+			if (EVENT_TYPE.isEnabled()) {
+				event = new OperationEvent();
+				event.begin();
+			} else
+				event = null;
+			start = System.nanoTime();
+		}
+
+		/**
+		 * This method will stop timing the run and record it.
+		 *
+		 * @param items The number of items it handled.
+		 * @param bytes The number of bytes it read or wrote.
+		 */
+		public void stop(long items, long bytes) {
+			record(System.nanoTime() - start, items, bytes);
+			if (event != null) {
+				event.end();
+				if (event.shouldCommit()) {
+					event.operation = name;
+					event.items = items;
+					event.bytes = bytes;
+					event.commit();
+				}
+			}
+		}
+	}
+
+}
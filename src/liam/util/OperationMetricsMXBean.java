@@ -0,0 +1,68 @@
+package liam.util;
+
+/**
+ * This interface is how an {@link OperationMetrics} is shown over JMX,
+ * for example in JConsole or Java Mission Control, under
+ * <code>liam:type=Operation</code>. Times are in nanoseconds.
+ *
+ * @author Liam
+ */
+public interface OperationMetricsMXBean {
+
+	/**
+	 * @return The name of the operation
+	 */
+	String getName();
+
+	/**
+	 * @return The number of times the operation ran
+	 */
+	long getCount();
+
+	/**
+	 * @return The number of items the operation handled, such as the
+	 *         items shuffled or inserted
+	 */
+	long getItems();
+
+	/**
+	 * @return The number of bytes the operation read or wrote
+	 */
+	long getBytes();
+
+	/**
+	 * @return The mean time the operation took
+	 */
+	double getMeanNanos();
+
+	/**
+	 * @return The median time the operation took
+	 */
+	long getP50Nanos();
+
+	/**
+	 * @return The time 90% of runs took at most
+	 */
+	long getP90Nanos();
+
+	/**
+	 * @return The time 99% of runs took at most
+	 */
+	long getP99Nanos();
+
+	/**
+	 * @return The time 99.9% of runs took at most
+	 */
+	long getP999Nanos();
+
+	/**
+	 * @return The longest time the operation took
+	 */
+	long getMaxNanos();
+
+	/**
+	 * This method will clear the counts and times.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,194 @@
+package liam.util;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class paces a loop to run at a fixed rate. Unlike pausing for the
+ * interval on every iteration, each call to {@link #pace()} waits until
+ * an absolute deadline (the start time plus a whole number of intervals),
+ * so time spent in the loop body and oversleeping don't add up to drift.
+ * If the loop falls behind, the following calls return at once until it
+ * has caught up.<br><br>
+ *
+ * Parking a thread is only accurate to tens of microseconds, so the
+ * thread parks until shortly before the deadline and then spins for the
+ * rest, which allows intervals well below a millisecond.<br><br>
+ *
+ * Statistics are kept on the achieved rate and the jitter: how late each
+ * call returned after its deadline. A pacer is meant to be used by one
+ * thread.
+ *
+ * @author Liam
+ */
+public final class Pacer {
+
+	/**
+	 * How long before a deadline to stop parking and start spinning.
+	 */
+	static final long SPIN_NANOS = 100_000;
+
+	private final long intervalNanos;
+	private long start;
+	private long next;
+
+	private long count;
+	private long lastReturn;
+	private double meanJitter;
+	private double sumSquares;
+	private long maxJitter;
+
+	/**
+	 * This constructor will create a pacer with an interval in
+	 * nanoseconds. The schedule starts with the first call to
+	 * {@link #pace()}.
+	 *
+	 * @param intervalNanos The interval between iterations.
+	 */
+	public Pacer(long intervalNanos) {
+		if (intervalNanos <= 0)
+			throw new IllegalArgumentException("Interval must be positive: " + intervalNanos);
+		this.intervalNanos = intervalNanos;
+	}
+
+	/**
+	 * This method will create a pacer with an interval.
+	 *
+	 * @param interval The interval between iterations.
+	 * @return The pacer.
+	 */
+	public static Pacer ofInterval(Duration interval) {
+		return new Pacer(interval.toNanos());
+	}
+
+	/**
+	 * This method will create a pacer with a rate.
+	 *
+	 * @param perSecond The number of iterations per second.
+	 * @return The pacer.
+	 */
+	public static Pacer ofRate(double perSecond) {
+		if (!(perSecond > 0))
+			throw new IllegalArgumentException("Rate must be positive: " + perSecond);
+		return new Pacer(Math.max(1, Math.round(1e9 / perSecond)));
+	}
+
+	/**
+	 * This method will wait until the next deadline. The first call
+	 * returns at once and starts the schedule. If the thread is
+	 * interrupted it returns early, leaving the interrupt status set.
+	 *
+	 * @return How many nanoseconds after the deadline this returned.
+	 */
+	public long pace() {
+		if (count == 0) {
+			start = System.nanoTime();
+			next = start;
+		} else {
+			awaitNanos(next);
+		}
+
+		long now = System.nanoTime();
+		long jitter = Math.max(0, now - next);
+		record(jitter);
+		lastReturn = now;
+		next += intervalNanos;
+		return jitter;
+	}
+
+	/**
+	 * This method will restart the schedule and clear the statistics.
+	 */
+	public void reset() {
+		count = 0;
+		meanJitter = 0;
+		sumSquares = 0;
+		maxJitter = 0;
+	}
+
+	/**
+	 * @return The interval between iterations in nanoseconds
+	 */
+	public long intervalNanos() {
+		return intervalNanos;
+	}
+
+	/**
+	 * @return The number of times {@link #pace()} has returned
+	 */
+	public long count() {
+		return count;
+	}
+
+	/**
+	 * @return The number of iterations per second achieved between the
+	 *         first and the last call, or 0 if there has been one call
+	 */
+	public double achievedRate() {
+		if (count < 2)
+			return 0;
+		return (count - 1) * 1e9 / Math.max(1, lastReturn - start);
+	}
+
+	/**
+	 * @return The average number of nanoseconds calls returned late
+	 */
+	public double meanJitterNanos() {
+		return meanJitter;
+	}
+
+	/**
+	 * @return The standard deviation of the lateness in nanoseconds
+	 */
+	public double jitterStdDevNanos() {
+		return count < 2 ? 0 : Math.sqrt(sumSquares / (count - 1));
+	}
+
+	/**
+	 * @return The most nanoseconds a call returned late
+	 */
+	public long maxJitterNanos() {
+		return maxJitter;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Pacer[interval=%dns, count=%d, rate=%.2f/s, jitter mean=%.0fns sd=%.0fns max=%dns]",
+				intervalNanos, count, achievedRate(), meanJitter, jitterStdDevNanos(), maxJitter);
+	}
+
+	/**
+	 * Welford's method, so the statistics don't lose precision over long
+	 * runs.
+	 */
+	private void record(long jitter) {
+		count++;
+		double delta = jitter - meanJitter;
+		meanJitter += delta / count;
+		sumSquares += delta * (jitter - meanJitter);
+		maxJitter = Math.max(maxJitter, jitter);
+	}
+
+	/**
+	 * This method will wait until {@link System#nanoTime()} reaches a
+	 * deadline, parking until shortly before it and spinning for the
+	 * rest.
+	 *
+	 * @param deadline The deadline as a {@link System#nanoTime()} value.
+	 * @return Whether the deadline was reached, rather than the thread
+	 * being interrupted.
+	 */
+	static boolean awaitNanos(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			if (Thread.currentThread().isInterrupted())
+				return false;
+			if (remaining > SPIN_NANOS)
+				LockSupport.parkNanos(remaining - SPIN_NANOS);
+			else
+				Thread.onSpinWait();
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,423 @@
+package liam.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * This class implements {@link Encryptor}'s scheme on byte arrays split
+ * into segments which are processed in parallel. The shift of every
+ * character depends only on its position, so each segment can be
+ * processed on its own once its starting position is known:
+ *
+ * <ul>
+ * <li>Base64 works on groups of 3 bytes (4 characters), so segments are
+ * cut on those boundaries.</li>
+ * <li>The shifted characters are written as UTF-8, which takes 1 to 4
+ * bytes each, so the length of every segment is counted first and the
+ * counts are added up to find where each segment's output starts.</li>
+ * <li>When decrypting, segments of UTF-8 are cut at the start of a
+ * character, and the characters in each segment are counted first to
+ * find the position of the first one.</li>
+ * </ul>
+ *
+ * In the {@link Encryptor.Format#MODULAR} format every character stays
+ * one byte, so segments need no counting pass.<br><br>
+ *
+ * The inner loops work directly on arrays without allocating, so the JIT
+ * can unroll them.
+ *
+ * @author Liam
+ */
+final class ParallelEncryptor {
+
+	/**
+	 * The number of Base64 groups (3 bytes, 4 characters) in a segment.
+	 */
+	private static final int GROUPS_PER_SEGMENT = 64 * 1024;
+
+	private static final byte[] ALPHABET = Encryptor.ALPHABET;
+
+	private static final int[] VALUES = Encryptor.VALUES;
+
+	/**
+	 * Class shouldn't be instantiated.
+	 */
+	private ParallelEncryptor() {
+	}
+
+	/**
+	 * This method will encrypt bytes in the
+	 * {@link Encryptor.Format#LEGACY} format, giving the same result as
+	 * {@link Encryptor#encrypt(String, Encryptor.Format)} on the String
+	 * they encode.
+	 *
+	 * @param data The bytes to be encrypted.
+	 * @param pool The pool to run segments on.
+	 * @return The encrypted bytes (ASCII).
+	 */
+	static byte[] encrypt(byte[] data, ForkJoinPool pool) {
+		byte[] encoded = encode(data, data.length, 0, pool);
+		int n = encoded.length;
+
+		int segments = segments(n, 4 * GROUPS_PER_SEGMENT);
+		long[] lengths = new long[segments + 1];
+		run(pool, segments, s -> {
+			int end = segmentEnd(s, 4 * GROUPS_PER_SEGMENT, n);
+			long length = 0;
+			for (int i = segmentStart(s, 4 * GROUPS_PER_SEGMENT); i < end; i++)
+				length += utf8Length(encoded, i);
+			lengths[s + 1] = length;
+		});
+		for (int s = 0; s < segments; s++)
+			lengths[s + 1] += lengths[s];
+
+		byte[] utf8 = new byte[checkedSize(lengths[segments])];
+		run(pool, segments, s -> {
+			int end = segmentEnd(s, 4 * GROUPS_PER_SEGMENT, n);
+			int op = (int) lengths[s];
+			for (int i = segmentStart(s, 4 * GROUPS_PER_SEGMENT); i < end; i++)
+				op = writeUtf8(encoded, i, utf8, op);
+		});
+
+		return encode(utf8, utf8.length, 0, pool);
+	}
+
+	/**
+	 * This method will encrypt bytes in the
+	 * {@link Encryptor.Format#MODULAR} format, giving the same result as
+	 * {@link Encryptor#encrypt(String, Encryptor.Format)} on the String
+	 * they encode.
+	 *
+	 * @param data The bytes to be encrypted.
+	 * @param pool The pool to run segments on.
+	 * @return The encrypted bytes (ASCII).
+	 */
+	static byte[] encryptModular(byte[] data, ForkJoinPool pool) {
+		byte[] encoded = encode(data, data.length, 0, pool);
+		int n = encoded.length;
+		run(pool, segments(n, 4 * GROUPS_PER_SEGMENT), s -> {
+			int end = segmentEnd(s, 4 * GROUPS_PER_SEGMENT, n);
+			for (int i = segmentStart(s, 4 * GROUPS_PER_SEGMENT); i < end; i++)
+				encoded[i] = Encryptor.shift(encoded[i], i);
+		});
+
+		byte[] encrypted = encode(encoded, n, 1, pool);
+		encrypted[0] = Encryptor.MODULAR_HEADER;
+		return encrypted;
+	}
+
+	/**
+	 * This method will decrypt bytes encrypted by
+	 * {@link #encrypt(byte[], ForkJoinPool)},
+	 * {@link #encryptModular(byte[], ForkJoinPool)} or {@link Encryptor}.
+	 * The format is detected from the first byte.
+	 *
+	 * @param data The bytes to be decrypted.
+	 * @param pool The pool to run segments on.
+	 * @return The decrypted bytes.
+	 * @throws IllegalArgumentException If the data isn't valid Base64.
+	 */
+	static byte[] decrypt(byte[] data, ForkJoinPool pool) {
+		if (data.length > 0 && data[0] == Encryptor.MODULAR_HEADER) {
+			byte[] encoded = decode(data, 1, pool);
+			int n = encoded.length;
+			run(pool, segments(n, 4 * GROUPS_PER_SEGMENT), s -> {
+				int end = segmentEnd(s, 4 * GROUPS_PER_SEGMENT, n);
+				for (int i = segmentStart(s, 4 * GROUPS_PER_SEGMENT); i < end; i++)
+					encoded[i] = Encryptor.unshift(encoded[i], i);
+			});
+			return decode(encoded, 0, pool);
+		}
+
+		byte[] utf8 = decode(data, 0, pool);
+		int n = utf8.length;
+
+		// Segments start at the first byte of a character
+		int segments = segments(n, 4 * GROUPS_PER_SEGMENT);
+		int[] starts = new int[segments + 1];
+		for (int s = 1; s < segments; s++) {
+			int start = segmentStart(s, 4 * GROUPS_PER_SEGMENT);
+			while (start < n && (utf8[start] & 0xC0) == 0x80)
+				start++;
+			starts[s] = Math.max(start, starts[s - 1]);
+		}
+		starts[segments] = n;
+
+		long[] counts = new long[segments + 1];
+		run(pool, segments, s -> {
+			long count = 0;
+			for (int i = starts[s]; i < starts[s + 1];) {
+				int codePoint = codePoint(utf8, i, starts[s + 1]);
+				count += codePoint >= 0x10000 ? 2 : 1;
+				i += codePointLength(utf8, i, starts[s + 1]);
+			}
+			counts[s + 1] = count;
+		});
+		for (int s = 0; s < segments; s++)
+			counts[s + 1] += counts[s];
+
+		byte[] encoded = new byte[checkedSize(counts[segments])];
+		run(pool, segments, s -> {
+			long index = counts[s];
+			for (int i = starts[s]; i < starts[s + 1];) {
+				int codePoint = codePoint(utf8, i, starts[s + 1]);
+				if (codePoint >= 0x10000) {
+					encoded[(int) index] = unshift(Character.highSurrogate(codePoint), index);
+					index++;
+					encoded[(int) index] = unshift(Character.lowSurrogate(codePoint), index);
+				} else {
+					encoded[(int) index] = unshift(codePoint, index);
+				}
+				index++;
+				i += codePointLength(utf8, i, starts[s + 1]);
+			}
+		});
+
+		return decode(encoded, 0, pool);
+	}
+
+	private static byte unshift(int c, long index) {
+		return (byte) (char) (c - (index + 1));
+	}
+
+	/**
+	 * Returns the shifted character at a position.
+	 */
+	private static char shifted(byte[] encoded, int i) {
+		return (char) ((encoded[i] & 0xFF) + i + 1);
+	}
+
+	/**
+	 * Returns the number of UTF-8 bytes written for the character at a
+	 * position, like {@code String.getBytes}: a surrogate pair takes 4
+	 * bytes (all counted on the high surrogate) and a lone surrogate is
+	 * written as '?'.
+	 */
+	private static int utf8Length(byte[] encoded, int i) {
+		char c = shifted(encoded, i);
+		if (c < 0x80)
+			return 1;
+		if (c < 0x800)
+			return 2;
+		if (Character.isHighSurrogate(c))
+			return i + 1 < encoded.length && Character.isLowSurrogate(shifted(encoded, i + 1)) ? 4 : 1;
+		if (Character.isLowSurrogate(c))
+			return i > 0 && Character.isHighSurrogate(shifted(encoded, i - 1)) ? 0 : 1;
+		return 3;
+	}
+
+	private static int writeUtf8(byte[] encoded, int i, byte[] dst, int op) {
+		char c = shifted(encoded, i);
+		if (c < 0x80) {
+			dst[op++] = (byte) c;
+		} else if (c < 0x800) {
+			dst[op++] = (byte) (0xC0 | c >> 6);
+			dst[op++] = (byte) (0x80 | c & 0x3F);
+		} else if (Character.isSurrogate(c)) {
+			int length = utf8Length(encoded, i);
+			if (length == 1) {
+				dst[op++] = '?';
+			} else if (length == 4) {
+				int cp = Character.toCodePoint(c, shifted(encoded, i + 1));
+				dst[op++] = (byte) (0xF0 | cp >> 18);
+				dst[op++] = (byte) (0x80 | cp >> 12 & 0x3F);
+				dst[op++] = (byte) (0x80 | cp >> 6 & 0x3F);
+				dst[op++] = (byte) (0x80 | cp & 0x3F);
+			}
+		} else {
+			dst[op++] = (byte) (0xE0 | c >> 12);
+			dst[op++] = (byte) (0x80 | c >> 6 & 0x3F);
+			dst[op++] = (byte) (0x80 | c & 0x3F);
+		}
+		return op;
+	}
+
+	/**
+	 * Decodes the UTF-8 character at a position. Malformed bytes decode
+	 * to U+FFFD, one byte at a time.
+	 */
+	private static int codePoint(byte[] b, int i, int end) {
+		int lead = b[i] & 0xFF;
+		if (lead < 0x80)
+			return lead;
+
+		int length = codePointLength(b, i, end);
+		if (length == 1)
+			return 0xFFFD;
+
+		int codePoint = lead & (0xFF >> (length + 1));
+		for (int j = 1; j < length; j++)
+			codePoint = codePoint << 6 | b[i + j] & 0x3F;
+		return codePoint;
+	}
+
+	/**
+	 * Returns the number of bytes of the UTF-8 character at a position,
+	 * or 1 if it is malformed.
+	 */
+	private static int codePointLength(byte[] b, int i, int end) {
+		int lead = b[i] & 0xFF;
+		int length;
+		if (lead < 0x80)
+			return 1;
+		else if (lead >= 0xF0 && lead < 0xF5)
+			length = 4;
+		else if (lead >= 0xE0 && lead < 0xF0)
+			length = 3;
+		else if (lead >= 0xC2 && lead < 0xE0)
+			length = 2;
+		else
+			return 1;
+
+		for (int j = 1; j < length; j++)
+			if (i + j >= end || (b[i + j] & 0xC0) != 0x80)
+				return 1;
+		return length;
+	}
+
+	/**
+	 * Base64 encodes the first length bytes of src in parallel segments,
+	 * leaving offset bytes free at the start of the result.
+	 */
+	static byte[] encode(byte[] src, int length, int offset, ForkJoinPool pool) {
+		int groups = length / 3;
+		byte[] dst = new byte[checkedSize(offset + 4 * ((length + 2L) / 3))];
+
+		int segments = segments(groups, GROUPS_PER_SEGMENT);
+		run(pool, segments, s -> {
+			int end = segmentEnd(s, GROUPS_PER_SEGMENT, groups);
+			for (int g = segmentStart(s, GROUPS_PER_SEGMENT); g < end; g++) {
+				int ip = 3 * g;
+				int op = offset + 4 * g;
+				int bits = (src[ip] & 0xFF) << 16 | (src[ip + 1] & 0xFF) << 8 | src[ip + 2] & 0xFF;
+				dst[op] = ALPHABET[bits >>> 18];
+				dst[op + 1] = ALPHABET[bits >>> 12 & 0x3F];
+				dst[op + 2] = ALPHABET[bits >>> 6 & 0x3F];
+				dst[op + 3] = ALPHABET[bits & 0x3F];
+			}
+		});
+
+		int rest = length - 3 * groups;
+		if (rest > 0) {
+			int ip = 3 * groups;
+			int op = offset + 4 * groups;
+			int bits = (src[ip] & 0xFF) << 16 | (rest == 2 ? (src[ip + 1] & 0xFF) << 8 : 0);
+			dst[op] = ALPHABET[bits >>> 18];
+			dst[op + 1] = ALPHABET[bits >>> 12 & 0x3F];
+			dst[op + 2] = rest == 2 ? ALPHABET[bits >>> 6 & 0x3F] : (byte) '=';
+			dst[op + 3] = '=';
+		}
+		return dst;
+	}
+
+	/**
+	 * Base64 decodes src from an offset in parallel segments.
+	 */
+	static byte[] decode(byte[] src, int offset, ForkJoinPool pool) {
+		int length = src.length - offset;
+		if (length % 4 != 0)
+			throw new IllegalArgumentException("Invalid Base64 length: " + length);
+
+		int padding = 0;
+		if (length > 0 && src[src.length - 1] == '=')
+			padding = length > 1 && src[src.length - 2] == '=' ? 2 : 1;
+
+		int groups = length / 4;
+		byte[] dst = new byte[3 * groups - padding];
+		int full = padding > 0 ? groups - 1 : groups;
+
+		int segments = segments(full, GROUPS_PER_SEGMENT);
+		run(pool, segments, s -> {
+			int end = segmentEnd(s, GROUPS_PER_SEGMENT, full);
+			for (int g = segmentStart(s, GROUPS_PER_SEGMENT); g < end; g++) {
+				int ip = offset + 4 * g;
+				int op = 3 * g;
+				int bits = value(src[ip]) << 18 | value(src[ip + 1]) << 12 | value(src[ip + 2]) << 6
+						| value(src[ip + 3]);
+				dst[op] = (byte) (bits >>> 16);
+				dst[op + 1] = (byte) (bits >>> 8);
+				dst[op + 2] = (byte) bits;
+			}
+		});
+
+		if (padding > 0) {
+			int ip = offset + 4 * full;
+			int op = 3 * full;
+			int bits = value(src[ip]) << 18 | value(src[ip + 1]) << 12 | (padding == 1 ? value(src[ip + 2]) << 6 : 0);
+			dst[op] = (byte) (bits >>> 16);
+			if (padding == 1)
+				dst[op + 1] = (byte) (bits >>> 8);
+		}
+		return dst;
+	}
+
+	private static int value(byte b) {
+		int value = VALUES[b & 0xFF];
+		if (value < 0)
+			throw new IllegalArgumentException("Illegal base64 character " + Integer.toHexString(b & 0xFF));
+		return value;
+	}
+
+	private static int segments(long length, int segmentLength) {
+		return (int) ((length + segmentLength - 1) / segmentLength);
+	}
+
+	/**
+	 * Returns where a segment starts. It is worked out in long, as for
+	 * data near 2GB it is only the product which doesn't fit in an int.
+	 */
+	private static int segmentStart(int segment, int segmentLength) {
+		return (int) ((long) segment * segmentLength);
+	}
+
+	/**
+	 * Returns where a segment ends, which for the last segment is the end
+	 * of the data.
+	 */
+	private static int segmentEnd(int segment, int segmentLength, int length) {
+		return (int) Math.min(length, (segment + 1L) * segmentLength);
+	}
+
+	private static int checkedSize(long size) {
+		if (size > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Data too large to encrypt in one array: " + size + " bytes");
+		return (int) size;
+	}
+
+	/**
+	 * Runs a task for every segment on a pool and waits for them all.
+	 */
+	private static void run(ForkJoinPool pool, int segments, IntConsumer task) {
+		if (segments == 1) {
+			task.accept(0);
+			return;
+		}
+
+		List<Callable<Void>> tasks = new ArrayList<>(segments);
+		for (int s = 0; s < segments; s++) {
+			int segment = s;
+			tasks.add(() -> {
+				task.accept(segment);
+				return null;
+			});
+		}
+
+		try {
+			for (Future<Void> future : pool.invokeAll(tasks))
+				future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ex.getCause();
+			throw new IllegalStateException(ex.getCause());
+		}
+	}
+
+}
@@ -0,0 +1,264 @@
+package liam.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * This class generates random numbers in inclusive ranges, including the
+ * full range of int and long, without bias. It uses Lemire's nearly
+ * divisionless method: a random number is multiplied by the size of the
+ * range, and the high half of the product is the result. Only when the
+ * low half falls in a small band, which is rare, is a division needed to
+ * decide whether to try again.<br><br>
+ *
+ * By default numbers come from the calling thread's
+ * {@link ThreadLocalRandom}, so the methods can be used from many threads
+ * at once without contention. The overloads which take a
+ * {@link RandomGenerator} can be given a seeded generator to repeat a
+ * sequence.
+ *
+ * @author Liam
+ */
+public final class RandomNumbers {
+
+	/**
+	 * Class shouldn't be instantiated.
+	 */
+	private RandomNumbers() {
+	}
+
+	/**
+	 * This method will generate a random int in a range.
+	 *
+	 * @param s The smallest value.
+	 * @param l The largest value.
+	 * @return The generated number.
+	 * @throws IllegalArgumentException If s is greater than l.
+	 */
+	public static int nextInt(int s, int l) {
+		return nextInt(ThreadLocalRandom.current(), s, l);
+	}
+
+	/**
+	 * This method will generate a random int in a range with a generator.
+	 *
+	 * @param random The generator.
+	 * @param s The smallest value.
+	 * @param l The largest value.
+	 * @return The generated number.
+	 * @throws IllegalArgumentException If s is greater than l.
+	 */
+	public static int nextInt(RandomGenerator random, int s, int l) {
+		checkRange(s, l);
+
+		// The size of the range as an unsigned int, which is 0 for the full range
+		int range = l - s + 1;
+		if (range == 0)
+			return random.nextInt();
+
+		long m = (random.nextInt() & 0xFFFFFFFFL) * (range & 0xFFFFFFFFL);
+		if (Integer.compareUnsigned((int) m, range) < 0) {
+			int threshold = Integer.remainderUnsigned(-range, range);
+			while (Integer.compareUnsigned((int) m, threshold) < 0)
+				m = (random.nextInt() & 0xFFFFFFFFL) * (range & 0xFFFFFFFFL);
+		}
+		return s + (int) (m >>> 32);
+	}
+
+	/**
+	 * This method will generate a random long in a range.
+	 *
+	 * @param s The smallest value.
+	 * @param l The largest value.
+	 * @return The generated number.
+	 * @throws IllegalArgumentException If s is greater than l.
+	 */
+	public static long nextLong(long s, long l) {
+		return nextLong(ThreadLocalRandom.current(), s, l);
+	}
+
+	/**
+	 * This method will generate a random long in a range with a
+	 * generator.
+	 *
+	 * @param random The generator.
+	 * @param s The smallest value.
+	 * @param l The largest value.
+	 * @return The generated number.
+	 * @throws IllegalArgumentException If s is greater than l.
+	 */
+	public static long nextLong(RandomGenerator random, long s, long l) {
+		checkRange(s, l);
+
+		long range = l - s + 1;
+		if (range == 0)
+			return random.nextLong();
+
+		long x = random.nextLong();
+		long low = x * range;
+		if (Long.compareUnsigned(low, range) < 0) {
+			long threshold = Long.remainderUnsigned(-range, range);
+			while (Long.compareUnsigned(low, threshold) < 0) {
+				x = random.nextLong();
+				low = x * range;
+			}
+		}
+		return s + unsignedMultiplyHigh(x, range);
+	}
+
+	/**
+	 * This method will fill an array with random ints in a range.
+	 *
+	 * @param dest The array to fill.
+	 * @param s The smallest value.
+	 * @param l The largest value.
+	 * @throws IllegalArgumentException If s is greater than l.
+	 */
+	public static void fill(int[] dest, int s, int l) {
+		fill(ThreadLocalRandom.current(), dest, s, l);
+	}
+
+	/**
+	 * This method will fill an array with random ints in a range from a
+	 * generator. The threshold for rejecting numbers is worked out once,
+	 * so there is at most one division for the whole array.
+	 *
+	 * @param random The generator.
+	 * @param dest The array to fill.
+	 * @param s The smallest value.
+	 * @param l The largest value.
+	 * @throws IllegalArgumentException If s is greater than l.
+	 */
+	public static void fill(RandomGenerator random, int[] dest, int s, int l) {
+		checkRange(s, l);
+
+		int range = l - s + 1;
+		if (range == 0) {
+			for (int i = 0; i < dest.length; i++)
+				dest[i] = random.nextInt();
+			return;
+		}
+
+		long r = range & 0xFFFFFFFFL;
+		int threshold = 0;
+		boolean thresholdKnown = false;
+		for (int i = 0; i < dest.length; i++) {
+			long m = (random.nextInt() & 0xFFFFFFFFL) * r;
+			if (Integer.compareUnsigned((int) m, range) < 0) {
+				if (!thresholdKnown) {
+					threshold = Integer.remainderUnsigned(-range, range);
+					thresholdKnown = true;
+				}
+				while (Integer.compareUnsigned((int) m, threshold) < 0)
+					m = (random.nextInt() & 0xFFFFFFFFL) * r;
+			}
+			dest[i] = s + (int) (m >>> 32);
+		}
+	}
+
+	/**
+	 * This method will fill an array with random longs in a range.
+	 *
+	 * @param dest The array to fill.
+	 * @param s The smallest value.
+	 * @param l The largest value.
+	 * @throws IllegalArgumentException If s is greater than l.
+	 */
+	public static void fill(long[] dest, long s, long l) {
+		fill(ThreadLocalRandom.current(), dest, s, l);
+	}
+
+	/**
+	 * This method will fill an array with random longs in a range from a
+	 * generator. The threshold for rejecting numbers is worked out once,
+	 * so there is at most one division for the whole array.
+	 *
+	 * @param random The generator.
+	 * @param dest The array to fill.
+	 * @param s The smallest value.
+	 * @param l The largest value.
+	 * @throws IllegalArgumentException If s is greater than l.
+	 */
+	public static void fill(RandomGenerator random, long[] dest, long s, long l) {
+		checkRange(s, l);
+
+		long range = l - s + 1;
+		if (range == 0) {
+			for (int i = 0; i < dest.length; i++)
+				dest[i] = random.nextLong();
+			return;
+		}
+
+		long threshold = 0;
+		boolean thresholdKnown = false;
+		for (int i = 0; i < dest.length; i++) {
+			long x = random.nextLong();
+			long low = x * range;
+			if (Long.compareUnsigned(low, range) < 0) {
+				if (!thresholdKnown) {
+					threshold = Long.remainderUnsigned(-range, range);
+					thresholdKnown = true;
+				}
+				while (Long.compareUnsigned(low, threshold) < 0) {
+					x = random.nextLong();
+					low = x * range;
+				}
+			}
+			dest[i] = s + unsignedMultiplyHigh(x, range);
+		}
+	}
+
+	/**
+	 * This method will return a stream of random ints in a range. Each
+	 * thread uses its own generator, so the stream can be parallel.
+	 *
+	 * @param count The number of values.
+	 * @param s The smallest value.
+	 * @param l The largest value.
+	 * @return The stream.
+	 * @throws IllegalArgumentException If s is greater than l or count
+	 * is negative.
+	 */
+	public static IntStream ints(long count, int s, int l) {
+		checkRange(s, l);
+		checkCount(count);
+		return LongStream.range(0, count).mapToInt(i -> nextInt(ThreadLocalRandom.current(), s, l));
+	}
+
+	/**
+	 * This method will return a stream of random longs in a range. Each
+	 * thread uses its own generator, so the stream can be parallel.
+	 *
+	 * @param count The number of values.
+	 * @param s The smallest value.
+	 * @param l The largest value.
+	 * @return The stream.
+	 * @throws IllegalArgumentException If s is greater than l or count
+	 * is negative.
+	 */
+	public static LongStream longs(long count, long s, long l) {
+		checkRange(s, l);
+		checkCount(count);
+		return LongStream.range(0, count).map(i -> nextLong(ThreadLocalRandom.current(), s, l));
+	}
+
+	/**
+	 * Returns the high 64 bits of the unsigned 128-bit product.
+	 */
+	private static long unsignedMultiplyHigh(long x, long y) {
+		return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+	}
+
+	private static void checkRange(long s, long l) {
+		if (s > l)
+			throw new IllegalArgumentException("Smallest value " + s + " is greater than largest value " + l);
+	}
+
+	private static void checkCount(long count) {
+		if (count < 0)
+			throw new IllegalArgumentException("Count must not be negative: " + count);
+	}
+
+}
@@ -0,0 +1,176 @@
+package liam.util;
+
+import java.time.Duration;
+
+/**
+ * This class limits how often permits are handed out, using a token
+ * bucket: permits build up at a steady rate while unused, up to a burst
+ * size, so short bursts run at full speed while the long-term rate is
+ * kept. It can be shared between threads.<br><br>
+ *
+ * Each request reserves its permits under a lock and then waits outside
+ * it with the same park and spin strategy as {@link Pacer}, so waiting
+ * threads don't hold each other up.
+ *
+ * @author Liam
+ */
+public final class RateLimiter {
+
+	private final double intervalNanos;
+	private final double maxPermits;
+
+	private double storedPermits;
+
+	/**
+	 * When the next permit is free, as a {@link System#nanoTime()} value.
+	 */
+	private long nextFree;
+
+	private final long start;
+	private long acquired;
+
+	/**
+	 * This constructor will create a limiter with a rate and a burst size.
+	 * The bucket starts full.
+	 *
+	 * @param perSecond The number of permits per second.
+	 * @param burst The most permits which can build up while unused.
+	 */
+	public RateLimiter(double perSecond, int burst) {
+		if (!(perSecond > 0))
+			throw new IllegalArgumentException("Rate must be positive: " + perSecond);
+		if (burst < 1)
+			throw new IllegalArgumentException("Burst must be at least 1: " + burst);
+
+		intervalNanos = 1e9 / perSecond;
+		maxPermits = burst;
+		storedPermits = burst;
+		start = System.nanoTime();
+		nextFree = start;
+	}
+
+	/**
+	 * This method will take one permit, waiting until it is free.
+	 *
+	 * @return How many nanoseconds were spent waiting.
+	 */
+	public long acquire() {
+		return acquire(1);
+	}
+
+	/**
+	 * This method will take a number of permits, waiting until they are
+	 * free. If the thread is interrupted it returns early, leaving the
+	 * interrupt status set; the permits are still used up.
+	 *
+	 * @param permits The number of permits.
+	 * @return How many nanoseconds were spent waiting.
+	 */
+	public long acquire(int permits) {
+		checkPermits(permits);
+		long now = System.nanoTime();
+		long readyAt;
+		synchronized (this) {
+			readyAt = reserve(permits, now);
+		}
+		Pacer.awaitNanos(readyAt);
+		return Math.max(0, readyAt - now);
+	}
+
+	/**
+	 * This method will take one permit if it is free now.
+	 *
+	 * @return Whether the permit was taken.
+	 */
+	public boolean tryAcquire() {
+		return tryAcquire(1, Duration.ZERO);
+	}
+
+	/**
+	 * This method will take a number of permits if they will be free
+	 * within a timeout, waiting until they are. Nothing is taken if they
+	 * won't be.
+	 *
+	 * @param permits The number of permits.
+	 * @param timeout The longest time to wait.
+	 * @return Whether the permits were taken.
+	 */
+	public boolean tryAcquire(int permits, Duration timeout) {
+		checkPermits(permits);
+		long now = System.nanoTime();
+		long readyAt;
+		synchronized (this) {
+			refill(now);
+			if (readyAt(permits) - now > timeout.toNanos())
+				return false;
+			readyAt = reserve(permits, now);
+		}
+		Pacer.awaitNanos(readyAt);
+		return true;
+	}
+
+	/**
+	 * @return The number of permits handed out
+	 */
+	public synchronized long acquiredPermits() {
+		return acquired;
+	}
+
+	/**
+	 * @return The number of permits per second handed out since the
+	 *         limiter was created
+	 */
+	public synchronized double achievedRate() {
+		return acquired * 1e9 / Math.max(1, System.nanoTime() - start);
+	}
+
+	/**
+	 * @return The number of permits per second the limiter allows
+	 */
+	public double rate() {
+		return 1e9 / intervalNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("RateLimiter[rate=%.2f/s, burst=%.0f, acquired=%d, achieved=%.2f/s]", rate(),
+				maxPermits, acquiredPermits(), achievedRate());
+	}
+
+	/**
+	 * Adds the permits which built up since the last request.
+	 */
+	private void refill(long now) {
+		if (now > nextFree) {
+			storedPermits = Math.min(maxPermits, storedPermits + (now - nextFree) / intervalNanos);
+			nextFree = now;
+		}
+	}
+
+	/**
+	 * Returns when permits would be free. Stored permits are used first,
+	 * and the rest have to build up after the permits already reserved.
+	 */
+	private long readyAt(int permits) {
+		double fresh = permits - Math.min(permits, storedPermits);
+		return nextFree + (long) Math.ceil(fresh * intervalNanos);
+	}
+
+	/**
+	 * Reserves permits and returns when the caller may go ahead.
+	 */
+	private long reserve(int permits, long now) {
+		refill(now);
+		long readyAt = readyAt(permits);
+		storedPermits -= Math.min(permits, storedPermits);
+		nextFree = readyAt;
+		acquired += permits;
+		return readyAt;
+	}
+
+	private static void checkPermits(int permits) {
+		if (permits < 1)
+			throw new IllegalArgumentException("Permits must be at least 1: " + permits);
+	}
+
+}
@@ -0,0 +1,224 @@
+package liam.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * This class is a counter which many threads can add to at once, such as
+ * inside a parallel stream. Like {@link java.util.concurrent.atomic.LongAdder},
+ * updates start on a single value and, once threads start getting in each
+ * other's way, are spread over a table of cells, each thread using the
+ * cell its hash picks. The total is the sum of them all.<br><br>
+ *
+ * Every cell is padded to fill its own cache lines, so threads updating
+ * different cells don't slow each other down through false sharing. A
+ * thread which collides moves to another cell, and the table only grows
+ * when it collides again there, to at most the number of processors
+ * (rounded up to a power of two).<br><br>
+ *
+ * {@link #sum()} isn't an atomic snapshot: adds made while it runs may or
+ * may not be counted.
+ *
+ * @author Liam
+ */
+public final class StripedLongHolder {
+
+	private static final int MAX_CELLS = Integer
+			.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+	private static final VarHandle BASE;
+	private static final VarHandle CELL_VALUE;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			BASE = lookup.findVarHandle(StripedLongHolder.class, "base", long.class);
+			CELL_VALUE = lookup.findVarHandle(CellValue.class, "value", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Each thread's hash, which is changed when it collides with another
+	 * thread so it can move to a different cell.
+	 */
+	private static final ThreadLocal<int[]> PROBE = ThreadLocal
+			.withInitial(() -> new int[] { mix(Thread.currentThread().getId()) });
+
+	/**
+	 * The value updated until there is contention.
+	 */
+	private volatile long base;
+
+	/**
+	 * The cells, or null until there is contention. The length is a power
+	 * of two and every cell is created with the table.
+	 */
+	private volatile Cell[] cells;
+
+	/**
+	 * This contructor is used if the value is to start at 0.
+	 */
+	public StripedLongHolder() {
+	}
+
+	/**
+	 * This constructor is used if an initial value is to be specified upon
+	 * instantiation.
+	 *
+	 * @param value
+	 *            The initial value.
+	 */
+	public StripedLongHolder(long value) {
+		base = value;
+	}
+
+	/**
+	 * This is called to add to the value.
+	 *
+	 * @param x
+	 *            The amount to add.
+	 */
+	public void add(long x) {
+		Cell[] cs = cells;
+		if (cs == null) {
+			long b = base;
+			if (BASE.compareAndSet(this, b, b + x))
+				return;
+			cs = grow(null);
+		}
+
+		int[] probe = PROBE.get();
+		boolean collided = false;
+		while (true) {
+			Cell cell = cs[probe[0] & (cs.length - 1)];
+			long v = cell.value;
+			if (CELL_VALUE.compareAndSet(cell, v, v + x))
+				return;
+
+			// Collided with another thread: move to another cell, and only
+			// make more if that collides too and the table can still grow
+			probe[0] = xorShift(probe[0]);
+			if (!collided || cs.length >= MAX_CELLS) {
+				collided = true;
+				cs = cells;
+			} else {
+				collided = false;
+				cs = grow(cs);
+			}
+		}
+	}
+
+	/**
+	 * This is called to add one to the value.
+	 */
+	public void increment() {
+		add(1);
+	}
+
+	/**
+	 * This is called to subtract one from the value.
+	 */
+	public void decrement() {
+		add(-1);
+	}
+
+	/**
+	 * This is called to get the total of all the adds.
+	 *
+	 * @return The value.
+	 */
+	public long sum() {
+		long sum = base;
+		Cell[] cs = cells;
+		if (cs != null)
+			for (Cell cell : cs)
+				sum += cell.value;
+		return sum;
+	}
+
+	/**
+	 * This is called to set the value back to 0. Adds made at the same
+	 * time may be lost.
+	 */
+	public void reset() {
+		sumThenReset();
+	}
+
+	/**
+	 * This is called to get the value and set it back to 0. Adds made at
+	 * the same time are counted either in the value returned or after it.
+	 *
+	 * @return The value before it was reset.
+	 */
+	public long sumThenReset() {
+		long sum = (long) BASE.getAndSet(this, 0L);
+		Cell[] cs = cells;
+		if (cs != null)
+			for (Cell cell : cs)
+				sum += (long) CELL_VALUE.getAndSet(cell, 0L);
+		return sum;
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(sum());
+	}
+
+	/**
+	 * Creates the table, or doubles it if it is still the table given and
+	 * isn't at its largest. Returns the current table.
+	 */
+	private synchronized Cell[] grow(Cell[] expected) {
+		Cell[] cs = cells;
+		if (cs != expected || (cs != null && cs.length >= MAX_CELLS))
+			return cs;
+
+		Cell[] grown = new Cell[cs == null ? Math.min(2, MAX_CELLS) : cs.length * 2];
+		int i = 0;
+		if (cs != null)
+			for (; i < cs.length; i++)
+				grown[i] = cs[i];
+		for (; i < grown.length; i++)
+			grown[i] = new Cell();
+		cells = grown;
+		return grown;
+	}
+
+	private static int mix(long id) {
+		int h = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+		return h == 0 ? 1 : h;
+	}
+
+	private static int xorShift(int h) {
+		h ^= h << 13;
+		h ^= h >>> 17;
+		h ^= h << 5;
+		return h;
+	}
+
+	/**
+	 * Fields before the value, so no other object's fields share its
+	 * cache line. The fields are in superclasses because the JVM doesn't
+	 * reorder fields across classes.
+	 */
+	private abstract static class LeftPadding {
+		long p01, p02, p03, p04, p05, p06, p07, p08;
+		long p09, p10, p11, p12, p13, p14, p15, p16;
+	}
+
+	private abstract static class CellValue extends LeftPadding {
+		volatile long value;
+	}
+
+	/**
+	 * A cell, padded on both sides to 128 bytes, which covers CPUs which
+	 * fetch cache lines in pairs.
+	 */
+	private static final class Cell extends CellValue {
+		long p17, p18, p19, p20, p21, p22, p23, p24;
+		long p25, p26, p27, p28, p29, p30, p31, p32;
+	}
+
+}